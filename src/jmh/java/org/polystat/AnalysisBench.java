@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of analyzers: building the hierarchy of an object at the
+ * end of a long chain of decoratees, which AnOdin does for every object,
+ * and AnFaR on small programs with division.
+ *
+ * @since 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AnalysisBench {
+
+    /**
+     * How many objects there are in the chain of decoratees.
+     */
+    @Param({"10", "100"})
+    private int depth;
+
+    /**
+     * Sources.
+     */
+    private Path sources;
+
+    /**
+     * Compiled XMIR of sources.
+     */
+    private Path temp;
+
+    /**
+     * Program with all sources compiled and cached in memory.
+     */
+    private Program program;
+
+    /**
+     * Write a chain of decoratees, where "cN" decorates "cN-1", and
+     * a program with division, then compile them.
+     * @throws Exception If fails
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.sources = Files.createTempDirectory("polystat-bench");
+        this.temp = Files.createTempDirectory("polystat-bench");
+        Files.write(
+            this.sources.resolve("c0.eo"),
+            "[] > c0\n  [x] > f\n    div. > @\n      5\n      x\n"
+                .getBytes(StandardCharsets.UTF_8)
+        );
+        for (int idx = 1; idx <= this.depth; ++idx) {
+            Files.write(
+                this.sources.resolve(String.format("c%d.eo", idx)),
+                String.format("[] > c%d\n  c%d > @\n", idx, idx - 1)
+                    .getBytes(StandardCharsets.UTF_8)
+            );
+        }
+        Files.write(
+            this.sources.resolve("test.eo"),
+            "[x] > test\n  div. > @\n    5\n    x\n".getBytes(StandardCharsets.UTF_8)
+        );
+        this.program = new Program(this.sources, this.temp, new XmirCache(64L << 20));
+        new Hierarchy().xml(this.program, this.top());
+        this.program.apply("\\Phi.test");
+    }
+
+    /**
+     * Delete sources and XMIR.
+     * @throws IOException If fails
+     */
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        Fresh.delete(this.sources);
+        Fresh.delete(this.temp);
+    }
+
+    /**
+     * Build the hierarchy of the object at the end of the chain.
+     * @return XMIR of the hierarchy
+     * @throws Exception If fails
+     */
+    @Benchmark
+    public String hierarchy() throws Exception {
+        return new Hierarchy().xml(this.program, this.top());
+    }
+
+    /**
+     * Analyze a small program with division by AnFaR.
+     * @return Results
+     * @throws Exception If fails
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Iterable<Result> far() throws Exception {
+        return new AnFaR().errors(this.program, "\\Phi.test");
+    }
+
+    /**
+     * Locator of the object at the end of the chain.
+     * @return Locator
+     */
+    private String top() {
+        return String.format("\\Phi.c%d", this.depth);
+    }
+}
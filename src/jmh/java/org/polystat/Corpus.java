@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Synthetic corpus of EO programs, one object per program.
+ *
+ * <p>Objects make chains of decoratees of the given depth, where
+ * every object decorates the previous one, through an alias, like
+ * {@code sandbox/derived.eo} decorates {@code sandbox/mutual_rec.eo}.
+ * The head of a chain has a memory, two methods "f" and "g", where "g"
+ * calls "f", and the given number of division sites. In every other
+ * chain, the second object overrides "f" to call "g", which is mutual
+ * recursion. Programs are spread over packages {@code corpus.d0},
+ * {@code corpus.d1} and so on, with at most {@link #PER_DIR}
+ * in each of them.</p>
+ *
+ * @since 1.0
+ */
+final class Corpus {
+
+    /**
+     * Programs in a package.
+     */
+    private static final int PER_DIR = 1000;
+
+    /**
+     * Number of objects, which is the number of programs.
+     */
+    private final int objects;
+
+    /**
+     * Length of chains of decoratees.
+     */
+    private final int depth;
+
+    /**
+     * Division sites in the head of every chain.
+     */
+    private final int divs;
+
+    /**
+     * Ctor.
+     * @param objects Number of objects
+     * @param depth Length of chains of decoratees, at least one
+     * @param divs Division sites in the head of every chain
+     */
+    Corpus(final int objects, final int depth, final int divs) {
+        if (depth < 1) {
+            throw new IllegalArgumentException(
+                String.format("Chains of decoratees can't be %d objects long", depth)
+            );
+        }
+        this.objects = objects;
+        this.depth = depth;
+        this.divs = divs;
+    }
+
+    /**
+     * Write all programs.
+     * @param dir Directory to write them to
+     * @return The directory
+     * @throws IOException If fails
+     */
+    public Path write(final Path dir) throws IOException {
+        for (int idx = 0; idx < this.objects; ++idx) {
+            final Path file = dir.resolve(
+                String.format("corpus/d%d/o%d.eo", idx / Corpus.PER_DIR, idx)
+            );
+            Files.createDirectories(file.getParent());
+            Files.write(file, this.program(idx).getBytes(StandardCharsets.UTF_8));
+        }
+        return dir;
+    }
+
+    /**
+     * Source of the program.
+     * @param idx Number of the object
+     * @return EO code
+     */
+    private String program(final int idx) {
+        final StringBuilder eo = new StringBuilder(0)
+            .append(String.format("+package %s\n", Corpus.pkg(idx)));
+        final int pos = idx % this.depth;
+        if (pos == 0) {
+            eo.append(String.format("\n[] > o%d\n", idx))
+                .append("  memory > x\n")
+                .append("  [self v] > f\n    x.write > @\n      v\n")
+                .append("  [self v] > g\n    self.f > @\n      self\n      v\n");
+            for (int site = 0; site < this.divs; ++site) {
+                eo.append(
+                    String.format("  [y] > d%d\n    div. > @\n      %d\n      y\n", site, site + 1)
+                );
+            }
+        } else {
+            eo.append(
+                String.format("+alias o%d %s.o%1$d\n", idx - 1, Corpus.pkg(idx - 1))
+            ).append(String.format("\n[] > o%d\n  o%d > @\n", idx, idx - 1));
+            if (pos == 1 && idx / this.depth % 2 == 0) {
+                eo.append("  [self v] > f\n    self.g > @\n      self\n      v\n");
+            }
+        }
+        return eo.toString();
+    }
+
+    /**
+     * Package of the object.
+     * @param idx Number of the object
+     * @return Name of the package
+     */
+    private static String pkg(final int idx) {
+        return String.format("corpus.d%d", idx / Corpus.PER_DIR);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Empty temp directory for every invocation of a benchmark,
+ * to measure cold runs.
+ *
+ * @since 1.0
+ */
+@State(Scope.Thread)
+public class Fresh {
+
+    /**
+     * The directory.
+     */
+    private Path temp;
+
+    /**
+     * Create the directory.
+     * @throws IOException If fails
+     */
+    @Setup(Level.Invocation)
+    public void create() throws IOException {
+        this.temp = Files.createTempDirectory("polystat-fresh");
+    }
+
+    /**
+     * Delete the directory.
+     * @throws IOException If fails
+     */
+    @TearDown(Level.Invocation)
+    public void clean() throws IOException {
+        Fresh.delete(this.temp);
+    }
+
+    /**
+     * The directory.
+     * @return Path
+     */
+    public Path dir() {
+        return this.temp;
+    }
+
+    /**
+     * Delete the directory with everything inside.
+     * @param dir The directory
+     * @throws IOException If fails
+     */
+    static void delete(final Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            Files.walkFileTree(
+                dir,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file,
+                        final BasicFileAttributes attrs) throws IOException {
+                        Files.delete(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(final Path sub,
+                        final IOException exc) throws IOException {
+                        Files.delete(sub);
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+            );
+        }
+    }
+}
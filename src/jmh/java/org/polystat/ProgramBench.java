@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link Program}: compiling a source from scratch,
+ * loading its XMIR again from disk, and finding a deeply nested object.
+ *
+ * @since 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ProgramBench {
+
+    /**
+     * How deep objects are nested in "deep.eo".
+     */
+    private static final int DEPTH = 32;
+
+    /**
+     * Sources.
+     */
+    private Path sources;
+
+    /**
+     * Compiled XMIR of sources.
+     */
+    private Path temp;
+
+    /**
+     * Program with all sources compiled and cached in memory.
+     */
+    private Program warm;
+
+    /**
+     * Locator of the deepest object.
+     */
+    private String deepest;
+
+    /**
+     * Write sources and compile them.
+     * @throws Exception If fails
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.sources = Files.createTempDirectory("polystat-bench");
+        this.temp = Files.createTempDirectory("polystat-bench");
+        final StringBuilder deep = new StringBuilder("[] > deep\n");
+        final StringBuilder locator = new StringBuilder("\\Phi.deep");
+        for (int idx = 1; idx <= ProgramBench.DEPTH; ++idx) {
+            for (int ind = 0; ind < idx; ++ind) {
+                deep.append("  ");
+            }
+            deep.append(String.format("[] > a%d\n", idx));
+            locator.append(String.format(".a%d", idx));
+        }
+        Files.write(
+            this.sources.resolve("deep.eo"),
+            deep.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        Files.write(
+            this.sources.resolve("test.eo"),
+            "[x] > test\n  div. > @\n    5\n    x\n".getBytes(StandardCharsets.UTF_8)
+        );
+        this.deepest = locator.toString();
+        this.warm = new Program(this.sources, this.temp, new XmirCache(64L << 20));
+        this.warm.apply(this.deepest);
+        this.warm.apply("\\Phi.test");
+    }
+
+    /**
+     * Delete sources and XMIR.
+     * @throws IOException If fails
+     */
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        Fresh.delete(this.sources);
+        Fresh.delete(this.temp);
+    }
+
+    /**
+     * Compile a source from scratch: parsing, XSL passes and loading.
+     * @param fresh Empty directory for XMIR
+     * @return The object
+     * @throws Exception If fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 20)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public XML coldCompile(final Fresh fresh) throws Exception {
+        return new Program(this.sources, fresh.dir()).apply("\\Phi.test");
+    }
+
+    /**
+     * Load XMIR, which is already compiled, from disk into a new cache.
+     * @return The object
+     * @throws Exception If fails
+     */
+    @Benchmark
+    public XML warmReload() throws Exception {
+        return new Program(this.sources, this.temp, new XmirCache(64L << 20))
+            .apply("\\Phi.test");
+    }
+
+    /**
+     * Find the deepest object, in XMIR cached in memory.
+     * @return The object
+     * @throws Exception If fails
+     */
+    @Benchmark
+    public XML deepLocator() throws Exception {
+        return this.warm.apply(this.deepest);
+    }
+}
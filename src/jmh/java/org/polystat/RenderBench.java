@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.manifests.Manifests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.cactoos.list.ListOf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reports, in SARIF and for the console.
+ *
+ * @since 1.0
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class RenderBench {
+
+    /**
+     * How many results there are.
+     */
+    @Param({"10", "10000", "1000000"})
+    private int size;
+
+    /**
+     * Results, every tenth of them failed.
+     */
+    private List<Result> results;
+
+    /**
+     * Make results.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        Manifests.DEFAULT.put("Polystat-Version", "1.0-SNAPSHOT");
+        this.results = new ArrayList<>(this.size);
+        for (int idx = 0; idx < this.size; ++idx) {
+            if (idx % 10 == 0) {
+                this.results.add(
+                    new Result.Failed(
+                        AnOdin.class,
+                        new IllegalStateException(String.format("broken %d", idx)),
+                        "mutual-recursion"
+                    )
+                );
+            } else {
+                this.results.add(
+                    new Result.Completed(
+                        AnFaR.class,
+                        new ListOf<>(String.format("\\Phi.p%d.f: division by zero", idx)),
+                        "far"
+                    )
+                );
+            }
+        }
+    }
+
+    /**
+     * Render SARIF.
+     * @return SARIF
+     */
+    @Benchmark
+    public String sarif() {
+        return new AsSarif(this.results).get();
+    }
+
+    /**
+     * Render for the console.
+     * @return Text
+     */
+    @Benchmark
+    public String console() {
+        return new AsConsole(this.results).get();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import picocli.CommandLine;
+
+/**
+ * Scale test: generate corpora of growing sizes, scan each of them from
+ * scratch and record throughput and peak heap.
+ *
+ * <p>Run it with "mvn -Pjmh test-compile exec:exec@scale", and pass
+ * options through -Dscale.args, for example
+ * {@code -Dscale.args='--sizes 10,1000,100000 --threads 8'}.
+ * Every size is scanned in this JVM, one after another, and the peak
+ * of the heap is reset before each of them.</p>
+ *
+ * @since 1.0
+ */
+@CommandLine.Command(
+    name = "scale",
+    description = "Scan generated corpora of growing sizes",
+    mixinStandardHelpOptions = true
+)
+public final class Scale implements Callable<Integer> {
+
+    /**
+     * Numbers of objects in corpora.
+     */
+    @CommandLine.Option(
+        names = "--sizes",
+        split = ",",
+        description = "Numbers of objects in corpora (default: 10,100,1000)"
+    )
+    private List<Integer> sizes = new ArrayList<>(0);
+
+    /**
+     * Length of chains of decoratees.
+     */
+    @CommandLine.Option(
+        names = "--depth",
+        defaultValue = "5",
+        description = "Length of chains of decoratees (default: ${DEFAULT-VALUE})"
+    )
+    private int depth;
+
+    /**
+     * Division sites in the head of every chain.
+     */
+    @CommandLine.Option(
+        names = "--divs",
+        defaultValue = "3",
+        description = "Division sites in the head of every chain (default: ${DEFAULT-VALUE})"
+    )
+    private int divs;
+
+    /**
+     * Threads to analyze with.
+     */
+    @CommandLine.Option(
+        names = "--threads",
+        defaultValue = "1",
+        description = "How many analysis tasks to run in parallel (default: ${DEFAULT-VALUE})"
+    )
+    private int threads;
+
+    /**
+     * File to write the CSV to.
+     */
+    @CommandLine.Option(
+        names = "--output",
+        description = "The CSV file to write measurements to, besides the log"
+    )
+    private Path output;
+
+    /**
+     * Directory to generate corpora in and keep them.
+     */
+    @CommandLine.Option(
+        names = "--dir",
+        description = "The directory to keep corpora in, instead of deleting them"
+    )
+    private Path dir;
+
+    /**
+     * Main entrance.
+     * @param args Command line arguments
+     */
+    @SuppressWarnings("PMD.DoNotCallSystemExit")
+    public static void main(final String... args) {
+        System.exit(new CommandLine(new Scale()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        if (this.sizes.isEmpty()) {
+            // @checkstyle MagicNumber (1 line)
+            this.sizes.add(10);
+            this.sizes.add(100);
+            this.sizes.add(1000);
+        }
+        final List<String> lines = new ArrayList<>(this.sizes.size() + 1);
+        lines.add("objects,seconds,objects_per_second,peak_heap_mb,exit");
+        for (final int size : this.sizes) {
+            lines.add(this.measure(size));
+            Logger.info(this, "%s", lines.get(lines.size() - 1));
+            if (this.output != null) {
+                Files.write(this.output, lines, StandardCharsets.UTF_8);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Generate the corpus and scan it.
+     * @param size Number of objects
+     * @return Line of CSV
+     * @throws Exception If fails
+     */
+    private String measure(final int size) throws Exception {
+        final Path home;
+        if (this.dir == null) {
+            home = Files.createTempDirectory("polystat-scale");
+        } else {
+            home = this.dir.resolve(String.valueOf(size));
+        }
+        final Path sources = home.resolve("src");
+        final Path temp = home.resolve("tmp");
+        Files.createDirectories(temp);
+        new Corpus(size, this.depth, this.divs).write(sources);
+        System.gc();
+        final List<MemoryPoolMXBean> pools = new ArrayList<>(0);
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                pools.add(pool);
+            }
+        }
+        final long start = System.nanoTime();
+        final int code;
+        try (Analyzers analyzers = new Analyzers()) {
+            code = new CommandLine(
+                new Polystat(
+                    XmirCache::new,
+                    analyzers,
+                    new ByteArrayInputStream(new byte[0]),
+                    new ByteArrayOutputStream()
+                )
+            ).execute(
+                "--files", sources.toString(),
+                "--tmp", temp.toString(),
+                "--threads", String.valueOf(this.threads)
+            );
+        }
+        final double secs = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1L);
+        long peak = 0L;
+        for (final MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        if (this.dir == null) {
+            Fresh.delete(home);
+        }
+        return String.format(
+            Locale.ENGLISH,
+            "%d,%.3f,%.1f,%d,%d",
+            size, secs, size / secs, peak >> 20, code
+        );
+    }
+}
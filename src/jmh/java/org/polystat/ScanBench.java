@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import picocli.CommandLine;
+
+/**
+ * Benchmarks of the whole scan of a generated corpus, from scratch
+ * and with everything compiled and analyzed before.
+ *
+ * @since 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ScanBench {
+
+    /**
+     * How many objects there are, one in each program.
+     */
+    @Param({"10", "100"})
+    private int objects;
+
+    /**
+     * Threads to analyze with.
+     */
+    @Param({"1", "4"})
+    private int threads;
+
+    /**
+     * Sources.
+     */
+    private Path sources;
+
+    /**
+     * Compiled XMIR and results of the warm scan.
+     */
+    private Path temp;
+
+    /**
+     * Generate the corpus and scan it once.
+     * @throws Exception If fails
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.sources = Files.createTempDirectory("polystat-bench");
+        this.temp = Files.createTempDirectory("polystat-bench");
+        // @checkstyle MagicNumber (1 line)
+        new Corpus(this.objects, 5, 3).write(this.sources);
+        this.scan(this.temp);
+    }
+
+    /**
+     * Delete sources, XMIR and results.
+     * @throws IOException If fails
+     */
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        Fresh.delete(this.sources);
+        Fresh.delete(this.temp);
+    }
+
+    /**
+     * Scan from scratch.
+     * @param fresh Empty directory for XMIR and results
+     * @return Exit code
+     * @throws Exception If fails
+     */
+    @Benchmark
+    public int cold(final Fresh fresh) throws Exception {
+        return this.scan(fresh.dir());
+    }
+
+    /**
+     * Scan with XMIR and results left by the previous scan.
+     * @return Exit code
+     * @throws Exception If fails
+     */
+    @Benchmark
+    public int warm() throws Exception {
+        return this.scan(this.temp);
+    }
+
+    /**
+     * Scan, as the command line does.
+     * @param tmp Directory for XMIR and results
+     * @return Exit code
+     * @throws Exception If fails
+     */
+    private int scan(final Path tmp) throws Exception {
+        try (Analyzers analyzers = new Analyzers()) {
+            return new CommandLine(
+                new Polystat(
+                    XmirCache::new,
+                    analyzers,
+                    new ByteArrayInputStream(new byte[0]),
+                    new ByteArrayOutputStream()
+                )
+            ).execute(
+                "--files", this.sources.toString(),
+                "--tmp", tmp.toString(),
+                "--threads", String.valueOf(this.threads)
+            );
+        }
+    }
+}
@@ -24,6 +24,8 @@
 package org.polystat;
 
 import com.jcabi.xml.XML;
+import java.util.Collections;
+import java.util.Set;
 import org.cactoos.Func;
 import org.cactoos.list.ListOf;
 import org.polystat.far.FaR;
@@ -31,6 +33,8 @@ import org.polystat.far.FaR;
 /**
  * Bridge to FaR analysis module.
  *
+ * <p>Instances of FaR are reused, but never by two threads at once.</p>
+ *
  * @see <a href="https://github.com/polystat/far">GitHub</a>
  * @since 0.4
  */
@@ -41,13 +45,27 @@ public final class AnFaR implements Analysis {
      */
     private static final String RULE_ID = "DIV0";
 
+    /**
+     * Instances of FaR.
+     */
+    private final Pool<FaR> fars;
+
+    /**
+     * Ctor.
+     */
+    public AnFaR() {
+        this.fars = new Pool<>(FaR::new);
+    }
+
     @Override
     @SuppressWarnings("PMD.AvoidCatchingGenericException")
     public Iterable<Result> errors(final Func<String, XML> xmir,
         final String locator) {
         Result result;
         try {
-            final Iterable<String> errors = new FaR().errors(xmir, locator);
+            final Iterable<String> errors = this.fars.apply(
+                far -> far.errors(xmir, locator)
+            );
             result = new Result.Completed(AnFaR.class, errors, AnFaR.RULE_ID);
         // @checkstyle IllegalCatchCheck (1 line)
         } catch (final Exception ex) {
@@ -56,4 +74,19 @@ public final class AnFaR implements Analysis {
         return new ListOf<Result>(result);
     }
 
+    @Override
+    public Set<String> rules() {
+        return Collections.singleton(AnFaR.RULE_ID);
+    }
+
+    @Override
+    public void close() throws Exception {
+        this.fars.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AnFaR with %s", this.fars);
+    }
+
 }
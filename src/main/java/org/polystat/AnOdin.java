@@ -24,32 +24,130 @@
 package org.polystat;
 
 import com.jcabi.xml.XML;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.cactoos.Func;
 import org.cactoos.list.ListOf;
+import org.cactoos.set.SetOf;
 import org.polystat.odin.interop.java.EOOdinAnalyzer;
 import org.polystat.odin.interop.java.OdinAnalysisResultInterop;
 
 /**
  * The implementation of analysis via odin (object dependency inspector).
  *
+ * <p>Analyzers of Odin are reused, but never by two threads at once.
+ * Many objects are analyzed one by one, in separate calls of Odin,
+ * even when they are given together. Odin doesn't report some defects
+ * of some objects, when their hierarchies are in one XML, even
+ * if they don't share any objects.</p>
+ *
  * @see <a href="https://github.com/polystat/odin">Github</a>
  * @since 0.3
  */
 public final class AnOdin implements Analysis {
 
+    /**
+     * Rule ids of all analyzers of Odin, which always run together.
+     */
+    private static final Set<String> RULES = Collections.unmodifiableSet(
+        new SetOf<>(
+            "Mutual Recursion",
+            "Unjustified Assumption",
+            "Direct Access to Superclass State",
+            "Liskov Substitution principle violation"
+        )
+    );
+
+    /**
+     * How many objects to analyze in one task.
+     */
+    private static final int BATCH = 8;
+
+    /**
+     * Hierarchies of analyzed objects.
+     */
+    private final Hierarchy hierarchy;
+
+    /**
+     * Analyzers of Odin.
+     */
+    private final Pool<EOOdinAnalyzer.EOOdinXmirAnalyzer> odins;
+
+    /**
+     * Ctor.
+     */
+    public AnOdin() {
+        this(new Hierarchy());
+    }
+
+    /**
+     * Ctor.
+     * @param hierarchy Hierarchies of objects, maybe already built by others
+     */
+    AnOdin(final Hierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.odins = new Pool<>(EOOdinAnalyzer.EOOdinXmirAnalyzer::new);
+    }
+
     @Override
-    @SuppressWarnings("PMD.AvoidCatchingGenericException")
     public Iterable<Result> errors(final Func<String, XML> xmir,
         final String locator) throws Exception {
-        final XML xml = xmir.apply(locator);
-        final String str = getObjectsHierarchy(xmir, xml);
-        final Iterable<Result> result = new EOOdinAnalyzer.EOOdinXmirAnalyzer()
-            .analyze(str).stream()
+        return this.odins.apply(odin -> this.analyzed(odin, xmir, locator));
+    }
+
+    @Override
+    public Map<String, Iterable<Result>> errors(final Func<String, XML> xmir,
+        final Collection<String> locators) throws Exception {
+        return this.odins.apply(
+            odin -> {
+                final Map<String, Iterable<Result>> all =
+                    new LinkedHashMap<>(locators.size());
+                for (final String locator : locators) {
+                    all.put(locator, this.analyzed(odin, xmir, locator));
+                }
+                return all;
+            }
+        );
+    }
+
+    @Override
+    public int batch() {
+        return AnOdin.BATCH;
+    }
+
+    @Override
+    public Set<String> rules() {
+        return AnOdin.RULES;
+    }
+
+    @Override
+    public void close() throws Exception {
+        this.odins.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AnOdin with %s", this.odins);
+    }
+
+    /**
+     * Analyze the hierarchy of the object with Odin.
+     * @param odin The analyzer of Odin
+     * @param xmir The XMIR
+     * @param locator The locator of the object
+     * @return Results
+     * @throws Exception If fails
+     */
+    private List<Result> analyzed(final EOOdinAnalyzer.EOOdinXmirAnalyzer odin,
+        final Func<String, XML> xmir, final String locator) throws Exception {
+        return odin.analyze(this.hierarchy.xml(xmir, locator)).stream()
             .map(res -> extractResults(res))
             .collect(Collectors.toList());
-        return result;
     }
 
     /**
@@ -80,47 +178,4 @@ public final class AnOdin implements Analysis {
         }
         return result;
     }
-
-    /**
-     * Resolves object hierarchy for the give object represented in XMIR and
-     * returns a well-formed XML.
-     * @param xmir Function to retrieve XMIR by locator
-     * @param xml XMIR of object to get hierarchy for
-     * @return Well-formed XML containing objects that form a hierarchy in XMIR
-     * @throws Exception on errors
-     */
-    private static String getObjectsHierarchy(final Func<String, XML> xmir,
-        final XML xml) throws Exception {
-        return String.format(
-            "%s%n%s%n%s",
-            "<objects>",
-            resolveObjectHierarchy(xmir, xml),
-            "</objects>"
-        );
-    }
-
-    /**
-     * Recursively resolves the decoratees for the given decorator object
-     * represented as XMIR.
-     * @param xmir Function to retrieve XMIR by locator
-     * @param xml XMIR that represents an object
-     * @return Concatenated XML string containing the whole object hierarchy
-     * @throws Exception on errors
-     */
-    private static String resolveObjectHierarchy(final Func<String, XML> xmir,
-        final XML xml) throws Exception {
-        String result = xml.toString();
-        for (final String decoratee : xml.xpath("o[@name='@']/@base")) {
-            if (decoratee.charAt(0) != '.') {
-                final List<String> split = new ListOf<>(decoratee.split("\\."));
-                final String name = split.get(split.size() - 1);
-                result = String.format(
-                    "%s%s",
-                    xmir.apply(String.format("\\Phi.%s", name)),
-                    result
-                );
-            }
-        }
-        return result;
-    }
 }
@@ -25,14 +25,22 @@
 package org.polystat;
 
 import com.jcabi.xml.XML;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import org.cactoos.Func;
 
 /**
  * An interface every analysis method has to implement.
  *
+ * <p>An analysis is made once per scan and is used for all objects,
+ * from many threads at once, until it is closed.</p>
+ *
  * @since 0.2
  */
-public interface Analysis {
+public interface Analysis extends AutoCloseable {
 
     /**
      * Analyse the specified object in the provided XMIR
@@ -45,4 +53,48 @@ public interface Analysis {
     Iterable<Result> errors(Func<String, XML> xmir,
         String locator) throws Exception;
 
+    /**
+     * Analyse the specified objects in the provided XMIR, all together,
+     * if the analysis can do it faster than one by one.
+     * @param xmir The XMIR
+     * @param locators Locators of the objects
+     * @return Lists of exceptions, by locators, in the order of locators
+     * @throws Exception If fails with any of the objects
+     */
+    default Map<String, Iterable<Result>> errors(Func<String, XML> xmir,
+        Collection<String> locators) throws Exception {
+        final Map<String, Iterable<Result>> all = new LinkedHashMap<>(locators.size());
+        for (final String locator : locators) {
+            all.put(locator, this.errors(xmir, locator));
+        }
+        return all;
+    }
+
+    /**
+     * How many objects the analysis prefers to get at once,
+     * in {@link #errors(Func, Collection)}.
+     * @return One, if there is no benefit from analysing them together
+     */
+    default int batch() {
+        return 1;
+    }
+
+    /**
+     * Rule ids the analysis may report, so that it is not even started
+     * when none of them is wanted.
+     * @return Rule ids, or an empty set if they are not known up front
+     */
+    default Set<String> rules() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Release whatever the analysis keeps between objects.
+     * @throws Exception If fails
+     */
+    @Override
+    default void close() throws Exception {
+        // nothing to release
+    }
+
 }
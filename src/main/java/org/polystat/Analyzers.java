@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Analyzers, together with the instances of the libraries they keep,
+ * which live as long as the process and serve all its scans.
+ *
+ * <p>Every scan gets the same analyzers, wrapped into
+ * {@link CachedAnalysis} with its own cache of results. The results
+ * are stored by versions of the libraries the analyzers bridge to,
+ * which Maven saves into a resource, since the version of the jar
+ * they come from is not theirs in the jar with all dependencies.
+ * They are closed by the owner, when there will be no more scans,
+ * and not by a scan.</p>
+ *
+ * @since 1.0
+ */
+final class Analyzers implements AutoCloseable {
+
+    /**
+     * Analyzers, by types to report on behalf of.
+     */
+    private final Map<Class<? extends Analysis>, Analysis> all;
+
+    /**
+     * Versions of the analyzers, by their types.
+     */
+    private final Map<Class<? extends Analysis>, String> versions;
+
+    /**
+     * Hierarchies of objects, shared by analyzers and by the cache of
+     * their results, so that every hierarchy is built once.
+     */
+    private final Hierarchy tree;
+
+    /**
+     * Ctor.
+     */
+    Analyzers() {
+        this(Analyzers.versions());
+    }
+
+    /**
+     * Ctor.
+     * @param versions Versions of Polystat and of libraries of analyzers,
+     *  by their artifacts: "polystat", "far" and "odin"
+     */
+    Analyzers(final Properties versions) {
+        this.all = new LinkedHashMap<>(0);
+        this.versions = new LinkedHashMap<>(0);
+        this.tree = new Hierarchy();
+        this.all.put(AnFaR.class, new AnFaR());
+        this.versions.put(
+            AnFaR.class,
+            String.format(
+                "polystat %s far %s",
+                versions.getProperty("polystat"), versions.getProperty("far")
+            )
+        );
+        this.all.put(AnOdin.class, new AnOdin(this.tree));
+        this.versions.put(
+            AnOdin.class,
+            String.format(
+                "polystat %s odin %s",
+                versions.getProperty("polystat"), versions.getProperty("odin")
+            )
+        );
+    }
+
+    /**
+     * Hierarchies of objects, which the analyzers share.
+     * @return Hierarchies
+     */
+    public Hierarchy hierarchy() {
+        return this.tree;
+    }
+
+    /**
+     * Analyzers for one scan, which store their results.
+     * @param results Where the results are stored
+     * @param metrics Timings of building hierarchies
+     * @return Analyzers, by types to report on behalf of
+     */
+    public Map<Class<? extends Analysis>, Analysis> cached(final ResultCache results,
+        final Metrics metrics) {
+        final Map<Class<? extends Analysis>, Analysis> cached =
+            new LinkedHashMap<>(this.all.size());
+        for (final Map.Entry<Class<? extends Analysis>, Analysis> ent : this.all.entrySet()) {
+            cached.put(
+                ent.getKey(),
+                new CachedAnalysis(
+                    ent.getValue(), this.versions.get(ent.getKey()),
+                    this.tree, results, metrics
+                )
+            );
+        }
+        return cached;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (final Analysis analysis : this.all.values()) {
+            Logger.debug(this, "Closing %s", analysis);
+            analysis.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.all.values().stream()
+            .map(Object::toString)
+            .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Versions of Polystat and of libraries of analyzers, which Maven
+     * put into the resource, when it was built.
+     * @return Versions, by artifacts
+     */
+    private static Properties versions() {
+        final Properties props = new Properties();
+        try (InputStream input = Analyzers.class.getResourceAsStream("analyzers.properties")) {
+            if (input == null) {
+                throw new IllegalStateException("There are no versions of analyzers");
+            }
+            props.load(input);
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Can't read versions of analyzers", ex);
+        }
+        return props;
+    }
+}
@@ -23,9 +23,9 @@
  */
 package org.polystat;
 
-import com.jcabi.log.Logger;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.function.Supplier;
 
 /**
@@ -50,25 +50,14 @@ final class AsConsole implements Supplier<String> {
 
     @Override
     public String get() {
-        final List<String> lines = new LinkedList<>();
-        for (final Result ent : this.errors) {
-            if (ent.failure().isPresent()) {
-                Logger.warn(Polystat.class, "%[exception]s", ent.failure().get());
-            } else {
-                for (final String error : ent) {
-                    lines.add(
-                        String.format(
-                            "RESULT BY %s:\n\t%s",
-                            ent.analysis().getSimpleName(),
-                            error.replace("\n", "\n\t")
-                        )
-                    );
-                }
+        final StringWriter out = new StringWriter();
+        try (ConsoleSink sink = new ConsoleSink(out)) {
+            for (final Result ent : this.errors) {
+                sink.accept(ent);
             }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
         }
-        if (lines.isEmpty()) {
-            lines.add("No errors found by Polystat analyzers");
-        }
-        return String.join("\n", lines);
+        return out.toString();
     }
 }
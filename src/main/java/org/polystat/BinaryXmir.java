@@ -0,0 +1,402 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Compact binary encoding of XMIR, which is loaded into DOM without
+ * an XML parser.
+ *
+ * <p>The file starts with four magic bytes "XMIB" and a byte of flags,
+ * where the lowest bit means that the rest is deflated. The rest is
+ * a stream of tokens, each starting with its kind: an opening element
+ * with its namespace, qualified name and attributes, a closing element,
+ * a text, a comment or a processing instruction. Numbers are unsigned
+ * variable-length integers. Strings are pooled: a string is written
+ * as its length and UTF-8 bytes, prefixed by zero, the first time it
+ * occurs, and as its number in the pool plus two after that. One means
+ * NULL, for example the namespace of an element without it.</p>
+ *
+ * @since 1.0
+ */
+final class BinaryXmir {
+
+    /**
+     * Extension of files with binary XMIR.
+     */
+    static final String EXTENSION = ".xmb";
+
+    /**
+     * Magic bytes.
+     */
+    private static final int MAGIC = 0x584D4942;
+
+    /**
+     * Flag of deflated content.
+     */
+    private static final int DEFLATED = 1;
+
+    /**
+     * Token of an opening element.
+     */
+    private static final int OPEN = 1;
+
+    /**
+     * Token of a closing element.
+     */
+    private static final int CLOSE = 2;
+
+    /**
+     * Token of a text.
+     */
+    private static final int TEXT = 3;
+
+    /**
+     * Token of a comment.
+     */
+    private static final int COMMENT = 4;
+
+    /**
+     * Token of a processing instruction.
+     */
+    private static final int PI = 5;
+
+    /**
+     * Ctor.
+     */
+    private BinaryXmir() {
+        // utility class
+    }
+
+    /**
+     * Encode XMIR.
+     * @param xml XMIR as XML
+     * @param deflate Deflate the tokens or not
+     * @return Binary XMIR
+     * @throws IOException If XML is broken
+     */
+    public static byte[] encode(final byte[] xml, final boolean deflate) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(xml.length / 2);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes.write(BinaryXmir.MAGIC >>> shift);
+        }
+        final OutputStream out;
+        if (deflate) {
+            bytes.write(BinaryXmir.DEFLATED);
+            out = new DeflaterOutputStream(bytes);
+        } else {
+            bytes.write(0);
+            out = bytes;
+        }
+        final BinaryXmir.Writer writer = new BinaryXmir.Writer(out);
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try {
+            final XMLStreamReader reader = factory.createXMLStreamReader(
+                new ByteArrayInputStream(xml)
+            );
+            while (reader.hasNext()) {
+                BinaryXmir.token(reader, reader.next(), writer);
+            }
+            reader.close();
+        } catch (final XMLStreamException ex) {
+            throw new IOException("Can't encode broken XMIR", ex);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode XMIR into DOM.
+     * @param input Binary XMIR
+     * @return The document
+     * @throws IOException If the binary is broken
+     */
+    public static Document decode(final InputStream input) throws IOException {
+        final DataInputStream head = new DataInputStream(input);
+        if (head.readInt() != BinaryXmir.MAGIC) {
+            throw new IOException("It's not binary XMIR, the magic bytes are wrong");
+        }
+        final InputStream body;
+        if ((head.readUnsignedByte() & BinaryXmir.DEFLATED) == 0) {
+            body = new BufferedInputStream(input);
+        } else {
+            body = new BufferedInputStream(new InflaterInputStream(input));
+        }
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Document doc;
+        try {
+            doc = factory.newDocumentBuilder().newDocument();
+        } catch (final ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final BinaryXmir.Reader reader = new BinaryXmir.Reader(body);
+        Node parent = doc;
+        for (int kind = body.read(); kind >= 0; kind = body.read()) {
+            if (kind == BinaryXmir.OPEN) {
+                final Element element = doc.createElementNS(reader.string(), reader.string());
+                for (int idx = reader.number(); idx > 0; --idx) {
+                    element.setAttributeNS(reader.string(), reader.string(), reader.string());
+                }
+                parent.appendChild(element);
+                parent = element;
+            } else if (kind == BinaryXmir.CLOSE) {
+                parent = parent.getParentNode();
+            } else if (kind == BinaryXmir.TEXT) {
+                parent.appendChild(doc.createTextNode(reader.string()));
+            } else if (kind == BinaryXmir.COMMENT) {
+                parent.appendChild(doc.createComment(reader.string()));
+            } else if (kind == BinaryXmir.PI) {
+                parent.appendChild(
+                    doc.createProcessingInstruction(reader.string(), reader.string())
+                );
+            } else {
+                throw new IOException(String.format("Unknown token %d in binary XMIR", kind));
+            }
+        }
+        return doc;
+    }
+
+    /**
+     * Write the token the reader is at.
+     * @param reader The reader
+     * @param event Type of the token
+     * @param writer Where to write
+     * @throws IOException If fails
+     */
+    private static void token(final XMLStreamReader reader, final int event,
+        final BinaryXmir.Writer writer) throws IOException {
+        if (event == XMLStreamConstants.START_ELEMENT) {
+            writer.number(BinaryXmir.OPEN);
+            writer.string(reader.getNamespaceURI());
+            writer.string(BinaryXmir.qualified(reader.getPrefix(), reader.getLocalName()));
+            writer.number(reader.getNamespaceCount() + reader.getAttributeCount());
+            for (int idx = 0; idx < reader.getNamespaceCount(); ++idx) {
+                writer.string(XMLConstants.XMLNS_ATTRIBUTE_NS_URI);
+                final String prefix = reader.getNamespacePrefix(idx);
+                if (prefix == null || prefix.isEmpty()) {
+                    writer.string(XMLConstants.XMLNS_ATTRIBUTE);
+                } else {
+                    writer.string(String.format("%s:%s", XMLConstants.XMLNS_ATTRIBUTE, prefix));
+                }
+                writer.string(reader.getNamespaceURI(idx));
+            }
+            for (int idx = 0; idx < reader.getAttributeCount(); ++idx) {
+                writer.string(reader.getAttributeNamespace(idx));
+                writer.string(
+                    BinaryXmir.qualified(
+                        reader.getAttributePrefix(idx), reader.getAttributeLocalName(idx)
+                    )
+                );
+                writer.string(reader.getAttributeValue(idx));
+            }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+            writer.number(BinaryXmir.CLOSE);
+        } else if (event == XMLStreamConstants.CHARACTERS
+            || event == XMLStreamConstants.CDATA
+            || event == XMLStreamConstants.SPACE) {
+            writer.number(BinaryXmir.TEXT);
+            writer.string(reader.getText());
+        } else if (event == XMLStreamConstants.COMMENT) {
+            writer.number(BinaryXmir.COMMENT);
+            writer.string(reader.getText());
+        } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            writer.number(BinaryXmir.PI);
+            writer.string(reader.getPITarget());
+            writer.string(reader.getPIData());
+        }
+    }
+
+    /**
+     * Qualified name.
+     * @param prefix Prefix, maybe empty or NULL
+     * @param local Local name
+     * @return Qualified name
+     */
+    static String qualified(final String prefix, final String local) {
+        final String name;
+        if (prefix == null || prefix.isEmpty()) {
+            name = local;
+        } else {
+            name = String.format("%s:%s", prefix, local);
+        }
+        return name;
+    }
+
+    /**
+     * Writer of numbers and pooled strings.
+     *
+     * @since 1.0
+     */
+    private static final class Writer {
+
+        /**
+         * Where to write.
+         */
+        private final OutputStream out;
+
+        /**
+         * Numbers of strings in the pool, starting from two.
+         */
+        private final Map<String, Integer> pool;
+
+        /**
+         * Ctor.
+         * @param output Where to write
+         */
+        Writer(final OutputStream output) {
+            this.out = output;
+            this.pool = new HashMap<>(0);
+        }
+
+        /**
+         * Write an unsigned number.
+         * @param num The number
+         * @throws IOException If fails
+         */
+        void number(final int num) throws IOException {
+            int rest = num;
+            while ((rest & ~0x7F) != 0) {
+                this.out.write(rest & 0x7F | 0x80);
+                rest >>>= 7;
+            }
+            this.out.write(rest);
+        }
+
+        /**
+         * Write a string, which may be NULL.
+         * @param str The string
+         * @throws IOException If fails
+         */
+        void string(final String str) throws IOException {
+            if (str == null) {
+                this.number(1);
+            } else {
+                final Integer num = this.pool.get(str);
+                if (num == null) {
+                    this.pool.put(str, this.pool.size() + 2);
+                    final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                    this.number(0);
+                    this.number(bytes.length);
+                    this.out.write(bytes);
+                } else {
+                    this.number(num);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reader of numbers and pooled strings.
+     *
+     * @since 1.0
+     */
+    private static final class Reader {
+
+        /**
+         * Where to read from.
+         */
+        private final DataInputStream input;
+
+        /**
+         * Strings in the pool.
+         */
+        private final List<String> pool;
+
+        /**
+         * Ctor.
+         * @param stream Where to read from
+         */
+        Reader(final InputStream stream) {
+            this.input = new DataInputStream(stream);
+            this.pool = new ArrayList<>(0);
+        }
+
+        /**
+         * Read an unsigned number.
+         * @return The number
+         * @throws IOException If fails
+         */
+        int number() throws IOException {
+            int num = 0;
+            int shift = 0;
+            int part;
+            do {
+                part = this.input.read();
+                if (part < 0) {
+                    throw new EOFException("Binary XMIR ends in the middle of a number");
+                }
+                num |= (part & 0x7F) << shift;
+                shift += 7;
+            } while ((part & 0x80) != 0);
+            return num;
+        }
+
+        /**
+         * Read a string.
+         * @return The string or NULL
+         * @throws IOException If fails
+         */
+        String string() throws IOException {
+            final int num = this.number();
+            String str = null;
+            if (num == 0) {
+                final byte[] bytes = new byte[this.number()];
+                this.input.readFully(bytes);
+                str = new String(bytes, StandardCharsets.UTF_8);
+                this.pool.add(str);
+            } else if (num > 1) {
+                str = this.pool.get(num - 2);
+            }
+            return str;
+        }
+    }
+}
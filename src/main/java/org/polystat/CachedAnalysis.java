@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import com.jcabi.xml.XML;
+import java.io.IOException;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.cactoos.Func;
+import org.cactoos.list.ListOf;
+
+/**
+ * Analysis, which stores its results in the {@link ResultCache} and
+ * doesn't run again for objects that didn't change.
+ *
+ * <p>The key of an object is a SHA-256 hash of the versions of Polystat
+ * and of the library of the analyzer, the name of its class and the XMIR
+ * of the hierarchy of the object, which includes everything it decorates.
+ * The rules are not part of the key, because an analyzer always runs all
+ * of its rules and the stored results carry their rule ids. If any
+ * of the results failed, nothing is stored. Failures are reported
+ * on behalf of the analyzer. The cache is best effort: if it can't
+ * be read or written, the analyzer runs and its results are reported
+ * anyway.</p>
+ *
+ * <p>When many objects are given at once, only those not found in the
+ * cache are passed to the analyzer, all together. If it fails with all
+ * of them, they are analyzed again one by one, and the results found
+ * in the cache are returned anyway.</p>
+ *
+ * @since 1.0
+ */
+final class CachedAnalysis implements Analysis {
+
+    /**
+     * The analyzer.
+     */
+    private final Analysis origin;
+
+    /**
+     * Version of the analyzer and its library.
+     */
+    private final String version;
+
+    /**
+     * Hierarchies of objects.
+     */
+    private final Hierarchy hierarchy;
+
+    /**
+     * Where the results are stored.
+     */
+    private final ResultCache cache;
+
+    /**
+     * Timings of building hierarchies.
+     */
+    private final Metrics metrics;
+
+    /**
+     * Ctor.
+     * @param origin The analyzer
+     * @param version Version of the analyzer and of the library it bridges to
+     * @param hierarchy Hierarchies of objects
+     * @param cache Where the results are stored
+     * @param metrics Timings of building hierarchies
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    CachedAnalysis(final Analysis origin, final String version,
+        final Hierarchy hierarchy, final ResultCache cache, final Metrics metrics) {
+        this.origin = origin;
+        this.version = version;
+        this.hierarchy = hierarchy;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public Iterable<Result> errors(final Func<String, XML> xmir,
+        final String locator) {
+        Iterable<Result> results;
+        try {
+            results = this.cached(xmir, locator);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            results = new ListOf<Result>(this.failed(ex));
+        }
+        return results;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public Map<String, Iterable<Result>> errors(final Func<String, XML> xmir,
+        final Collection<String> locators) throws Exception {
+        final Map<String, Iterable<Result>> all = new LinkedHashMap<>(locators.size());
+        final Map<String, byte[]> keys = new LinkedHashMap<>(0);
+        for (final String locator : locators) {
+            try {
+                final byte[] key = this.key(xmir, locator);
+                final Optional<List<Result>> stored = this.stored(key);
+                if (stored.isPresent()) {
+                    all.put(locator, stored.get());
+                } else {
+                    keys.put(locator, key);
+                    all.put(locator, null);
+                }
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                all.put(locator, new ListOf<Result>(this.failed(ex)));
+            }
+        }
+        if (!keys.isEmpty()) {
+            Map<String, Iterable<Result>> found;
+            try {
+                found = this.origin.errors(xmir, new ArrayList<>(keys.keySet()));
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                found = this.separately(xmir, keys.keySet());
+            }
+            for (final Map.Entry<String, byte[]> ent : keys.entrySet()) {
+                final List<Result> fresh;
+                if (found.get(ent.getKey()) == null) {
+                    fresh = new ListOf<Result>(
+                        this.failed(
+                            new IllegalStateException(
+                                String.format("%s gave no results of %s", this.origin, ent.getKey())
+                            )
+                        )
+                    );
+                } else {
+                    fresh = new ListOf<>(found.get(ent.getKey()));
+                }
+                this.store(ent.getKey(), ent.getValue(), fresh);
+                all.put(ent.getKey(), fresh);
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public int batch() {
+        return this.origin.batch();
+    }
+
+    @Override
+    public Set<String> rules() {
+        return this.origin.rules();
+    }
+
+    @Override
+    public void close() throws Exception {
+        this.origin.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, cached", this.origin);
+    }
+
+    /**
+     * Find the results in the cache, or analyze and store them.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the object
+     * @return Results
+     * @throws Exception If fails
+     */
+    private Iterable<Result> cached(final Func<String, XML> xmir,
+        final String locator) throws Exception {
+        final byte[] key = this.key(xmir, locator);
+        final Optional<List<Result>> stored = this.stored(key);
+        final Iterable<Result> results;
+        if (stored.isPresent()) {
+            results = stored.get();
+        } else {
+            final List<Result> fresh = new ListOf<Result>(this.origin.errors(xmir, locator));
+            this.store(locator, key, fresh);
+            results = fresh;
+        }
+        return results;
+    }
+
+    /**
+     * Analyze objects one by one, after the analyzer failed with all
+     * of them together, so that a broken object doesn't take the results
+     * of its neighbours with it.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locators Locators of the objects
+     * @return Results, by locators
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Map<String, Iterable<Result>> separately(final Func<String, XML> xmir,
+        final Collection<String> locators) {
+        final Map<String, Iterable<Result>> found = new LinkedHashMap<>(locators.size());
+        for (final String locator : locators) {
+            Iterable<Result> results;
+            try {
+                results = new ListOf<>(this.origin.errors(xmir, locator));
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                results = new ListOf<Result>(this.failed(ex));
+            }
+            found.put(locator, results);
+        }
+        return found;
+    }
+
+    /**
+     * Failure of the analyzer.
+     * @param error Why it failed
+     * @return Failed result, on behalf of the analyzer
+     */
+    private Result failed(final Throwable error) {
+        return new Result.Failed(
+            this.origin.getClass(), error, this.origin.getClass().getName()
+        );
+    }
+
+    /**
+     * Find the results in the cache. If the cache can't be read,
+     * they are not found.
+     * @param key The key of the object
+     * @return Results, if they were stored
+     */
+    private Optional<List<Result>> stored(final byte[] key) {
+        Optional<List<Result>> found;
+        try {
+            found = this.cache.get(key, this.origin.getClass());
+        } catch (final IOException ex) {
+            Logger.warn(this, "Can't read results of %s: %[exception]s", this.origin, ex);
+            found = Optional.empty();
+        }
+        return found;
+    }
+
+    /**
+     * Store the results, unless any of them failed. If the cache can't
+     * be written, the results are not stored, but they are still good.
+     * @param locator Locator of the object
+     * @param key The key of the object
+     * @param results Results
+     */
+    private void store(final String locator, final byte[] key, final List<Result> results) {
+        if (results.stream().noneMatch(res -> res.failure().isPresent())) {
+            try {
+                this.cache.put(
+                    String.format("%s %s", this.origin.getClass().getName(), locator),
+                    key, results
+                );
+            } catch (final IOException | OverlappingFileLockException ex) {
+                Logger.warn(this, "Can't store results of %s: %[exception]s", this.origin, ex);
+            }
+        }
+    }
+
+    /**
+     * The key of the object in the cache.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the object
+     * @return SHA-256 hash
+     * @throws Exception If fails
+     */
+    private byte[] key(final Func<String, XML> xmir, final String locator)
+        throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(this.version.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(this.origin.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        final long start = System.nanoTime();
+        final String xml = this.hierarchy.xml(xmir, locator);
+        this.metrics.record("hierarchy", start);
+        digest.update(xml.getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+/**
+ * Thin client, which forwards its arguments to a running {@link Daemon}
+ * and prints what the daemon answers.
+ *
+ * <p>The client proves to the daemon that it runs on behalf of the same
+ * user with the {@link Token} the daemon issued.
+ * Relative paths in the arguments are resolved by the daemon against
+ * the working directory of the client. The standard input is forwarded
+ * only if no sources directory is given. The arguments are forwarded
+ * as they are given: options from ".polystat" are already among them,
+ * see {@link Polystat#main(String...)}.
+ * The exit status of the client is the one the daemon answers with.</p>
+ *
+ * @since 1.0
+ */
+@CommandLine.Command(
+    name = "client",
+    description = "Run the analysis in a running 'polystat daemon'"
+)
+final class Client implements Callable<Integer> {
+
+    /**
+     * Port the daemon listens on.
+     */
+    @CommandLine.Option(
+        names = "--port",
+        defaultValue = "7373",
+        description = "Local TCP port of the daemon (default: ${DEFAULT-VALUE})"
+    )
+    private int port;
+
+    /**
+     * File to read the token from.
+     */
+    @CommandLine.Option(
+        names = "--token",
+        description = "File to read the token of the daemon from"
+            + " (default: ~/.polystat/daemon-PORT.token)"
+    )
+    private Path token;
+
+    /**
+     * Arguments to forward.
+     */
+    @CommandLine.Unmatched
+    private List<String> args = new LinkedList<>();
+
+    @Override
+    public Integer call() throws IOException {
+        final Token secret;
+        if (this.token == null) {
+            secret = new Token(this.port);
+        } else {
+            secret = new Token(this.token);
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port)) {
+            final OutputStream output = socket.getOutputStream();
+            final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            writer.write(secret.read());
+            writer.write('\n');
+            writer.write(Paths.get("").toAbsolutePath().toString());
+            writer.write('\n');
+            for (final String arg : this.args) {
+                writer.write(arg);
+                writer.write('\n');
+            }
+            writer.write('\n');
+            writer.flush();
+            if (this.args.stream().noneMatch(arg -> arg.startsWith("--files"))) {
+                Client.copy(System.in, output);
+            }
+            socket.shutdownOutput();
+            return Client.answer(socket.getInputStream(), System.out);
+        }
+    }
+
+    /**
+     * Copy the answer of the daemon to the output, except its last line,
+     * which is the exit status.
+     * @param input Where to read the answer from
+     * @param output Where to write to
+     * @return The exit status, or one if the answer has no status
+     * @throws IOException If fails
+     */
+    private static int answer(final InputStream input, final OutputStream output)
+        throws IOException {
+        final InputStream buffered = new BufferedInputStream(input);
+        final ByteArrayOutputStream held = new ByteArrayOutputStream();
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int chr = buffered.read(); chr >= 0; chr = buffered.read()) {
+            line.write(chr);
+            if (chr == '\n') {
+                held.writeTo(output);
+                output.flush();
+                held.reset();
+                line.writeTo(held);
+                line.reset();
+            }
+        }
+        final String last = new String(held.toByteArray(), StandardCharsets.UTF_8).trim();
+        final int code;
+        if (line.size() == 0 && last.matches(String.format("%s\\d+", Daemon.EXIT))) {
+            code = Integer.parseInt(last.substring(Daemon.EXIT.length()));
+        } else {
+            held.writeTo(output);
+            line.writeTo(output);
+            output.flush();
+            code = 1;
+        }
+        return code;
+    }
+
+    /**
+     * Copy all bytes from the input to the output.
+     * @param input Where to read from
+     * @param output Where to write to
+     * @throws IOException If fails
+     */
+    private static void copy(final InputStream input, final OutputStream output)
+        throws IOException {
+        final byte[] buf = new byte[8192];
+        for (int len = input.read(buf); len >= 0; len = input.read(buf)) {
+            output.write(buf, 0, len);
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Console report, which is printed while results arrive.
+ *
+ * <p>Every error found is written and flushed immediately. Failures
+ * of analyzers go to the log. The sink flushes, but never closes
+ * the writer.</p>
+ *
+ * @since 1.0
+ */
+final class ConsoleSink implements Sink, Closeable {
+
+    /**
+     * The output.
+     */
+    private final Writer output;
+
+    /**
+     * Has anything been printed yet?
+     */
+    private boolean printed;
+
+    /**
+     * Ctor.
+     * @param out Where to print
+     */
+    ConsoleSink(final Writer out) {
+        this.output = out;
+    }
+
+    @Override
+    public void accept(final Result result) throws IOException {
+        if (result.failure().isPresent()) {
+            Logger.warn(Polystat.class, "%[exception]s", result.failure().get());
+        } else {
+            for (final String error : result) {
+                this.line(
+                    String.format(
+                        "RESULT BY %s:\n\t%s",
+                        result.analysis().getSimpleName(),
+                        error.replace("\n", "\n\t")
+                    )
+                );
+            }
+            this.output.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.printed) {
+            this.line("No errors found by Polystat analyzers");
+        }
+        this.output.flush();
+    }
+
+    /**
+     * Print a line, separating it from the previous one.
+     * @param text The line
+     * @throws IOException If fails
+     */
+    private void line(final String text) throws IOException {
+        if (this.printed) {
+            this.output.write("\n");
+        }
+        this.output.write(text);
+        this.printed = true;
+    }
+}
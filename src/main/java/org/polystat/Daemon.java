@@ -0,0 +1,403 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.cactoos.Func;
+import picocli.CommandLine;
+
+/**
+ * Long-living process that runs analysis requests of {@link Client}.
+ *
+ * <p>The daemon listens on a TCP port of the loopback interface and keeps
+ * the {@link Analyzers}, the parsed XMIR and the JVM itself warm between requests,
+ * so a request pays neither for the startup nor for parsing of sources
+ * that didn't change since the previous one.</p>
+ *
+ * <p>Only the user who started the daemon may send requests to it:
+ * the first line of a request is the {@link Token}, which the daemon
+ * saves into a file only this user may read. Then goes the working
+ * directory of the client, then the arguments of {@link Polystat},
+ * one per line, then an empty line.
+ * Everything after the empty line, up to the end of the stream, is the
+ * standard input of the request.
+ * The daemon answers with the report, then with the line "exit" and
+ * the exit status of the request, which is one if any analyzer fails,
+ * and closes the connection.
+ * Requests with "--watch" are rejected, because they never end.</p>
+ *
+ * <p>Requests without "--tmp" share one temp directory per directory
+ * of sources, so that XMIR, fingerprints and results of analyzers
+ * saved by one request are found by the next one. These directories
+ * live in the directory of the daemon and outlive it. If the sources
+ * come from the standard input, they are new every time, so they and
+ * their temp directory are deleted after the request.</p>
+ *
+ * @since 1.0
+ */
+@CommandLine.Command(
+    name = "daemon",
+    description = "Keep analyzers warm and run requests of 'polystat client'",
+    mixinStandardHelpOptions = true,
+    versionProvider = Polystat.Version.class
+)
+final class Daemon implements Callable<Integer> {
+
+    /**
+     * Prefix of the last line of an answer, with the exit status.
+     */
+    static final String EXIT = "exit ";
+
+    /**
+     * Maximum length of a line of a request, in bytes.
+     */
+    private static final int LINE = 1 << 16;
+
+    /**
+     * Port to listen on.
+     */
+    @CommandLine.Option(
+        names = "--port",
+        defaultValue = "7373",
+        description = "Local TCP port to listen on (default: ${DEFAULT-VALUE})"
+    )
+    private int port;
+
+    /**
+     * Budget of the XMIR cache shared by all requests, in megabytes of XMIR files.
+     */
+    @CommandLine.Option(
+        names = "--xmir-cache",
+        defaultValue = "256",
+        description = "Megabytes of XMIR files, by their size on disk, to keep parsed"
+            + " in memory (default: ${DEFAULT-VALUE})"
+    )
+    private long budget;
+
+    /**
+     * Directory to keep temp directories of requests in.
+     */
+    @CommandLine.Option(
+        names = "--tmp",
+        description = "Directory to keep temp files of requests without --tmp in,"
+            + " one directory per sources directory (default: ~/.polystat/daemon-PORT)"
+    )
+    private Path temp;
+
+    /**
+     * File to save the token to.
+     */
+    @CommandLine.Option(
+        names = "--token",
+        description = "File to save the token of clients to"
+            + " (default: ~/.polystat/daemon-PORT.token)"
+    )
+    private Path token;
+
+    /**
+     * Analyzers shared by all requests.
+     */
+    private final Analyzers analyzers;
+
+    /**
+     * Ctor.
+     * @param analyzers Analyzers shared by all requests
+     */
+    Daemon(final Analyzers analyzers) {
+        this(analyzers, 0L);
+    }
+
+    /**
+     * Ctor.
+     * @param analyzers Analyzers shared by all requests
+     * @param megabytes Budget of the XMIR cache shared by all requests
+     */
+    Daemon(final Analyzers analyzers, final long megabytes) {
+        this(analyzers, megabytes, null);
+    }
+
+    /**
+     * Ctor.
+     * @param analyzers Analyzers shared by all requests
+     * @param megabytes Budget of the XMIR cache shared by all requests
+     * @param dir Directory to keep temp directories of requests in,
+     *  or NULL for the default one
+     */
+    Daemon(final Analyzers analyzers, final long megabytes, final Path dir) {
+        this.analyzers = analyzers;
+        this.budget = megabytes;
+        this.temp = dir;
+    }
+
+    @Override
+    public Integer call() throws IOException {
+        final Token secret;
+        if (this.token == null) {
+            secret = new Token(this.port);
+        } else {
+            secret = new Token(this.token);
+        }
+        try (
+            ServerSocket server = new ServerSocket(
+                this.port, 0, InetAddress.getLoopbackAddress()
+            )
+        ) {
+            final String issued = secret.issue();
+            Logger.info(
+                this, "Listening on %s, clients need the token in %s",
+                server.getLocalSocketAddress(), secret
+            );
+            try {
+                this.serve(server, issued);
+            } finally {
+                secret.revoke();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Serve requests, until the socket is closed or the thread is interrupted.
+     * @param server The socket to accept requests on
+     * @param secret The token clients must send
+     * @throws IOException If fails
+     */
+    void serve(final ServerSocket server, final String secret) throws IOException {
+        final XmirCache cache = new XmirCache(this.budget << 20);
+        final Path home;
+        if (this.temp == null) {
+            home = Paths.get(
+                System.getProperty("user.home"), ".polystat",
+                String.format("daemon-%d", server.getLocalPort())
+            );
+        } else {
+            home = this.temp;
+        }
+        final Func<Path, Path> temps = src -> Daemon.temp(home, src);
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Socket socket = server.accept();
+                pool.submit(() -> this.answer(socket, cache, temps, secret));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Answer one request, if it has the token.
+     * @param socket Connection with the client
+     * @param cache XMIR cache shared by all requests
+     * @param temps Temp directories of requests, by their sources
+     * @param secret The token clients must send
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void answer(final Socket socket, final XmirCache cache,
+        final Func<Path, Path> temps, final String secret) {
+        try (Socket conn = socket) {
+            final InputStream input = conn.getInputStream();
+            if (!Token.same(secret, Daemon.line(input))) {
+                conn.getOutputStream().write(
+                    "Wrong token, the daemon was started by another user\n"
+                        .getBytes(StandardCharsets.UTF_8)
+                );
+                throw new IOException("A request with a wrong token is rejected");
+            }
+            final Path dir = Paths.get(Daemon.line(input));
+            final List<String> args = new LinkedList<>();
+            for (String arg = Daemon.line(input); !arg.isEmpty(); arg = Daemon.line(input)) {
+                args.add(arg);
+            }
+            final ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            for (int len = input.read(buf); len >= 0; len = input.read(buf)) {
+                stdin.write(buf, 0, len);
+            }
+            final Daemon.Tail output = new Daemon.Tail(
+                new BufferedOutputStream(conn.getOutputStream())
+            );
+            final PrintWriter err = new PrintWriter(
+                new OutputStreamWriter(output, StandardCharsets.UTF_8), true
+            );
+            final Polystat scan = new Polystat(
+                budget -> cache, temps, this.analyzers,
+                new ByteArrayInputStream(stdin.toByteArray()), output
+            );
+            final int status = new CommandLine(scan)
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .setExecutionStrategy(Daemon::finite)
+                .registerConverter(Path.class, dir::resolve)
+                .setOut(err)
+                .setErr(err)
+                .execute(args.toArray(new String[0]));
+            err.flush();
+            final int code;
+            if (status == 0 && scan.failures() > 0) {
+                code = 1;
+            } else {
+                code = status;
+            }
+            if (!output.ended()) {
+                output.write('\n');
+            }
+            output.write(
+                String.format("%s%d\n", Daemon.EXIT, code).getBytes(StandardCharsets.UTF_8)
+            );
+            output.flush();
+            Logger.debug(this, "Answered %s in %s, %s; %s", args, dir, cache, this.analyzers);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            Logger.warn(this, "%[exception]s", ex);
+        }
+    }
+
+    /**
+     * Run the request, unless it never ends.
+     * @param parsed The parsed request
+     * @return Exit status
+     */
+    private static int finite(final CommandLine.ParseResult parsed) {
+        if (parsed.hasMatchedOption("--watch")) {
+            throw new CommandLine.ParameterException(
+                parsed.commandSpec().commandLine(),
+                "The daemon doesn't watch sources, run 'polystat --watch' instead"
+            );
+        }
+        return new CommandLine.RunLast().execute(parsed);
+    }
+
+    /**
+     * Temp directory of requests with the sources.
+     * @param home Directory to keep temp directories in
+     * @param src The directory with sources
+     * @return The temp directory, the same for the same sources
+     * @throws IOException If fails to create it
+     */
+    private static Path temp(final Path home, final Path src) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final byte[] hash = digest.digest(
+            src.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)
+        );
+        final StringBuilder hex = new StringBuilder(16);
+        for (int idx = 0; idx < 8; ++idx) {
+            hex.append(String.format("%02x", hash[idx]));
+        }
+        return Files.createDirectories(home.resolve(hex.toString()));
+    }
+
+    /**
+     * Read one line of the request, without reading anything after it.
+     * @param input Where to read from
+     * @return The line, without the line break
+     * @throws IOException If the request ends before the line does,
+     *  or the line is too long
+     */
+    private static String line(final InputStream input) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int chr = input.read(); chr != '\n'; chr = input.read()) {
+            if (chr < 0) {
+                throw new IOException("Request ended before its arguments did");
+            }
+            if (bytes.size() == Daemon.LINE) {
+                throw new IOException("A line of the request is too long");
+            }
+            bytes.write(chr);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stream, which remembers whether the last line written is complete.
+     *
+     * @since 1.0
+     */
+    private static final class Tail extends FilterOutputStream {
+
+        /**
+         * The last byte written.
+         */
+        private int last;
+
+        /**
+         * Ctor.
+         * @param output Where to write
+         */
+        Tail(final OutputStream output) {
+            super(output);
+            this.last = '\n';
+        }
+
+        @Override
+        public void write(final int chr) throws IOException {
+            this.out.write(chr);
+            this.last = chr;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int off, final int len) throws IOException {
+            this.out.write(bytes, off, len);
+            if (len > 0) {
+                this.last = bytes[off + len - 1];
+            }
+        }
+
+        /**
+         * Is the last line complete?
+         * @return TRUE if nothing was written or the last byte is a line break
+         */
+        boolean ended() {
+            return this.last == '\n';
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+/**
+ * Events of Java Flight Recorder, one for each stage of the pipeline.
+ *
+ * <p>Start polystat with {@code -XX:StartFlightRecording} to get
+ * a timeline of every object. While nothing is recorded, an event
+ * costs almost nothing, because it is not committed. If the JVM has
+ * no flight recorder, as Java 8 before 8u272, events do nothing
+ * and {@link Flight} is never loaded.</p>
+ *
+ * @since 1.0
+ */
+final class Events {
+
+    /**
+     * Whether the JVM has the flight recorder.
+     */
+    private static final boolean RECORDER = Events.recorder();
+
+    /**
+     * Span, which does nothing.
+     */
+    private static final Events.Span IDLE = () -> { };
+
+    /**
+     * Ctor.
+     */
+    private Events() {
+        // utility class
+    }
+
+    /**
+     * Start the compilation of a source into XMIR, by {@code Syntax}
+     * and {@code Xsline}.
+     * @param src Path of the source
+     * @return Span to finish when it's done
+     */
+    static Events.Span compile(final String src) {
+        Events.Span span = Events.IDLE;
+        if (Events.RECORDER) {
+            final Flight.Compile event = new Flight.Compile(src);
+            event.begin();
+            span = event;
+        }
+        return span;
+    }
+
+    /**
+     * Start loading XMIR into memory, either from disk or from the cache.
+     * @param xml Path of XMIR
+     * @return Span to finish when it's done
+     */
+    static Events.Span load(final String xml) {
+        Events.Span span = Events.IDLE;
+        if (Events.RECORDER) {
+            final Flight.Load event = new Flight.Load(xml);
+            event.begin();
+            span = event;
+        }
+        return span;
+    }
+
+    /**
+     * Start the lookup of an object in XMIR by its locator.
+     * @param xml Path of XMIR
+     * @param lctr Locator of the object
+     * @return Span to finish when it's done
+     */
+    static Events.Span locate(final String xml, final String lctr) {
+        Events.Span span = Events.IDLE;
+        if (Events.RECORDER) {
+            final Flight.Locate event = new Flight.Locate(xml, lctr);
+            event.begin();
+            span = event;
+        }
+        return span;
+    }
+
+    /**
+     * Start the analysis of one object by one analyzer.
+     * @param type Type of the analyzer
+     * @param lctr Locator of the object
+     * @return Span to finish with the results
+     */
+    static Events.Outcome<Iterable<Result>> analyze(
+        final Class<? extends Analysis> type, final String lctr) {
+        Events.Outcome<Iterable<Result>> span = results -> { };
+        if (Events.RECORDER) {
+            final Flight.Analyze event = new Flight.Analyze(type, lctr);
+            event.begin();
+            span = event;
+        }
+        return span;
+    }
+
+    /**
+     * Start rendering one result in the report.
+     * @return Span to finish with the result
+     */
+    static Events.Outcome<Result> render() {
+        Events.Outcome<Result> span = res -> { };
+        if (Events.RECORDER) {
+            final Flight.Render event = new Flight.Render();
+            event.begin();
+            span = event;
+        }
+        return span;
+    }
+
+    /**
+     * Outcome of results: "failed" if any of them failed, "defects"
+     * if any of them found something, or "clean".
+     * @param results Results
+     * @return Outcome
+     */
+    static String outcome(final Iterable<Result> results) {
+        String outcome = "clean";
+        for (final Result res : results) {
+            if (res.failure().isPresent()) {
+                outcome = "failed";
+                break;
+            }
+            if (res.iterator().hasNext()) {
+                outcome = "defects";
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Whether the JVM has the flight recorder.
+     * @return TRUE if it has
+     */
+    private static boolean recorder() {
+        boolean found;
+        try {
+            Class.forName("jdk.jfr.Event", false, Events.class.getClassLoader());
+            found = true;
+        } catch (final ClassNotFoundException | LinkageError ex) {
+            found = false;
+        }
+        return found;
+    }
+
+    /**
+     * Stage of the pipeline, which is recorded when it finishes.
+     *
+     * @since 1.0
+     */
+    interface Span {
+
+        /**
+         * Finish and commit, if recorded.
+         */
+        void finish();
+    }
+
+    /**
+     * Stage of the pipeline, which is recorded with its outcome.
+     *
+     * @param <T> Type of the outcome
+     * @since 1.0
+     */
+    interface Outcome<T> {
+
+        /**
+         * Finish and commit, if recorded, with the outcome.
+         * @param outcome The outcome
+         */
+        void finish(T outcome);
+    }
+}
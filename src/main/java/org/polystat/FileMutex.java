@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive access to a file, shared by threads and processes.
+ *
+ * <p>All guarded files of a directory share one lock file in it, and
+ * every file locks one byte of it, at the position of its striped lock
+ * of the process, so the directory never gets more than one lock file.
+ * A file lock belongs to the whole JVM, and another attempt to lock
+ * the same region from the same JVM fails instead of waiting. That is
+ * why a thread first takes the striped lock, and only then the region.
+ * A thread, which already holds the region, doesn't lock it again.
+ * Closing any channel of a file may release all locks of the process
+ * on it, that is why the process has one channel of a lock file,
+ * which is closed when nobody uses it. The lock file is never replaced,
+ * so guarded files may be atomically replaced while the lock is held.</p>
+ *
+ * @since 1.0
+ */
+final class FileMutex {
+
+    /**
+     * Striped locks of the process, by hashes of paths of guarded files.
+     */
+    private static final Lock[] STRIPES = FileMutex.stripes(64);
+
+    /**
+     * Open lock files of the process, by their paths.
+     */
+    private static final Map<Path, FileMutex.Shared> OPEN = new HashMap<>(0);
+
+    /**
+     * The lock file.
+     */
+    private final Path lock;
+
+    /**
+     * Region of the lock file, and the striped lock.
+     */
+    private final int region;
+
+    /**
+     * Ctor.
+     * @param file The guarded file, which shares a lock file of its directory
+     */
+    FileMutex(final Path file) {
+        final Path path = file.toAbsolutePath().normalize();
+        this.lock = path.resolveSibling(".lock");
+        this.region = Math.floorMod(path.hashCode(), FileMutex.STRIPES.length);
+    }
+
+    /**
+     * Run the job, while no other thread or process holds the lock.
+     * @param job The job
+     * @param <T> Type of the outcome
+     * @return Outcome of the job
+     * @throws IOException If fails to lock or the job fails
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public <T> T run(final Callable<T> job) throws IOException {
+        final Lock stripe = FileMutex.STRIPES[this.region];
+        stripe.lock();
+        try {
+            final FileMutex.Shared shared = FileMutex.open(this.lock);
+            try {
+                return FileMutex.locked(shared, this.region, job);
+            } finally {
+                FileMutex.release(this.lock);
+            }
+        } catch (final IOException | RuntimeException ex) {
+            throw ex;
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            throw new IOException(ex);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Run the job, while holding the region of the lock file.
+     * @param shared The lock file
+     * @param region The region, whose striped lock the thread holds
+     * @param job The job
+     * @param <T> Type of the outcome
+     * @return Outcome of the job
+     * @throws Exception If fails
+     */
+    private static <T> T locked(final FileMutex.Shared shared, final int region,
+        final Callable<T> job) throws Exception {
+        final T result;
+        if (shared.held[region]) {
+            result = job.call();
+        } else {
+            try (FileLock held = shared.channel.lock(region, 1L, false)) {
+                shared.held[region] = true;
+                try {
+                    result = job.call();
+                } finally {
+                    shared.held[region] = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Open the lock file, unless it is open already.
+     * @param lock The lock file
+     * @return The open lock file
+     * @throws IOException If fails
+     */
+    private static FileMutex.Shared open(final Path lock) throws IOException {
+        synchronized (FileMutex.OPEN) {
+            if (!FileMutex.OPEN.containsKey(lock)) {
+                Files.createDirectories(lock.getParent());
+                FileMutex.OPEN.put(
+                    lock,
+                    new FileMutex.Shared(
+                        FileChannel.open(
+                            lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE
+                        )
+                    )
+                );
+            }
+            final FileMutex.Shared shared = FileMutex.OPEN.get(lock);
+            shared.users += 1;
+            return shared;
+        }
+    }
+
+    /**
+     * Close the lock file, if nobody else in the process uses it.
+     * @param lock The lock file
+     * @throws IOException If fails
+     */
+    private static void release(final Path lock) throws IOException {
+        synchronized (FileMutex.OPEN) {
+            final FileMutex.Shared shared = FileMutex.OPEN.get(lock);
+            shared.users -= 1;
+            if (shared.users == 0) {
+                FileMutex.OPEN.remove(lock);
+                shared.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Make striped locks.
+     * @param total How many
+     * @return Locks
+     */
+    private static Lock[] stripes(final int total) {
+        final Lock[] locks = new Lock[total];
+        for (int idx = 0; idx < total; ++idx) {
+            locks[idx] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Lock file, open in the process.
+     *
+     * <p>Its counter is guarded by the map of open files, and every flag
+     * of a held region by the striped lock of the region.</p>
+     *
+     * @since 1.0
+     */
+    private static final class Shared {
+
+        /**
+         * The channel.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Which regions the process holds.
+         */
+        private final boolean[] held;
+
+        /**
+         * How many threads use it.
+         */
+        private int users;
+
+        /**
+         * Ctor.
+         * @param chnl The channel
+         */
+        Shared(final FileChannel chnl) {
+            this.channel = chnl;
+            this.held = new boolean[FileMutex.STRIPES.length];
+        }
+    }
+}
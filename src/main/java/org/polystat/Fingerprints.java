@@ -0,0 +1,383 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import com.jcabi.manifests.Manifests;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of EO sources, which were compiled into XMIR,
+ * persisted in a manifest file in the temp directory.
+ *
+ * <p>A fingerprint is a SHA-256 hash of the source code together
+ * with the version of the EO parser, which also defines the version
+ * of the Xsline pipeline. When the fingerprint of a source matches the one
+ * in the manifest, its XMIR is up to date, no matter what the timestamps
+ * of the files say.</p>
+ *
+ * <p>The manifest is an append-only log: a source, which has been compiled,
+ * adds one line to its end, under {@link FileMutex}, and the last line
+ * of a source wins. A manifest in memory reads only the lines that
+ * were added since it read it last time, and a line without its end
+ * is left for the next time. When there are many more lines than sources,
+ * the manifest is compacted into a new file, once, when it's read
+ * for the first time.</p>
+ *
+ * @since 1.0
+ */
+final class Fingerprints {
+
+    /**
+     * Name of the manifest file in the temp directory.
+     */
+    static final String MANIFEST = "fingerprints.txt";
+
+    /**
+     * How many superfluous lines the manifest may have, before it is compacted.
+     */
+    private static final int GARBAGE = 1024;
+
+    /**
+     * The manifest file.
+     */
+    private final Path file;
+
+    /**
+     * Lock of the manifest file.
+     */
+    private final FileMutex mutex;
+
+    /**
+     * Version of the compiler.
+     */
+    private final String version;
+
+    /**
+     * Fingerprints of compiled sources, by their names.
+     */
+    private final Map<String, String> prints;
+
+    /**
+     * How many bytes of the manifest file were read.
+     */
+    private long done;
+
+    /**
+     * Identity of the manifest file, which was read, to notice
+     * that it was compacted into another file.
+     */
+    private Object identity;
+
+    /**
+     * Recently calculated fingerprints, by absolute paths of sources.
+     */
+    private final Map<Path, Fingerprints.Calculated> recent;
+
+    /**
+     * Ctor.
+     * @param dir The temp directory
+     */
+    Fingerprints(final Path dir) {
+        this(dir, Fingerprints.compiler());
+    }
+
+    /**
+     * Ctor.
+     * @param dir The temp directory
+     * @param ver Version of the compiler
+     */
+    Fingerprints(final Path dir, final String ver) {
+        this.file = dir.resolve(Fingerprints.MANIFEST);
+        this.mutex = new FileMutex(this.file);
+        this.version = ver;
+        this.prints = new HashMap<>(0);
+        this.recent = new ConcurrentHashMap<>(0);
+    }
+
+    /**
+     * Calculate the fingerprint of the source.
+     *
+     * <p>The hash is recalculated only when the size or the modification
+     * time of the file changes, which saves reading the file over and over
+     * again during one scan. A file may be rewritten with the same size
+     * within the granularity of its modification time, so the memo is not
+     * trusted longer than one scan: every scan makes new fingerprints.</p>
+     * @param src The EO source file
+     * @return The fingerprint
+     * @throws IOException If fails to read the file
+     */
+    public String of(final Path src) throws IOException {
+        final Path key = src.toAbsolutePath().normalize();
+        final long size = Files.size(key);
+        final long modified = Files.getLastModifiedTime(key).toMillis();
+        Fingerprints.Calculated calc = this.recent.get(key);
+        if (calc == null || !calc.fresh(size, modified)) {
+            calc = new Fingerprints.Calculated(
+                this.hash(Files.readAllBytes(key)), size, modified
+            );
+            this.recent.put(key, calc);
+        }
+        return calc.print();
+    }
+
+    /**
+     * Was the source with this fingerprint already compiled?
+     *
+     * <p>If the manifest in memory says no, the lines added to the file
+     * since then are read, since another process may have compiled
+     * the source meanwhile.</p>
+     * @param name Name of the source
+     * @param print Its current fingerprint
+     * @return TRUE if its XMIR is up to date
+     */
+    public boolean compiled(final String name, final String print) {
+        synchronized (this.prints) {
+            boolean found = print.equals(this.prints.get(name));
+            if (!found) {
+                try {
+                    this.tail();
+                } catch (final IOException ex) {
+                    Logger.warn(this, "Can't read %s: %[exception]s", this.file, ex);
+                }
+                found = print.equals(this.prints.get(name));
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Remember that the source with this fingerprint has been compiled,
+     * by adding a line to the manifest.
+     * @param name Name of the source
+     * @param print Its fingerprint
+     * @throws IOException If fails to save the manifest
+     */
+    public void compile(final String name, final String print) throws IOException {
+        final byte[] line = String.format("%s %s\n", print, name)
+            .getBytes(StandardCharsets.UTF_8);
+        this.mutex.run(
+            () -> Files.write(
+                this.file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+            )
+        );
+        synchronized (this.prints) {
+            this.prints.put(name, print);
+        }
+    }
+
+    /**
+     * Read lines added to the manifest since the last time, or all of them,
+     * if the file was compacted meanwhile, and compact it, if it
+     * is read for the first time and there are too many lines.
+     * @throws IOException If fails
+     */
+    private void tail() throws IOException {
+        if (Files.exists(this.file)) {
+            final boolean first = this.identity == null && this.done == 0L;
+            final int lines;
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+                final Object key = Files.readAttributes(
+                    this.file, BasicFileAttributes.class
+                ).fileKey();
+                if (channel.size() < this.done
+                    || this.identity != null && !this.identity.equals(key)) {
+                    this.done = 0L;
+                }
+                this.identity = key;
+                final ByteBuffer buf = ByteBuffer.allocate(
+                    (int) (channel.size() - this.done)
+                );
+                int len = 0;
+                while (buf.hasRemaining() && len >= 0) {
+                    len = channel.read(buf, this.done + buf.position());
+                }
+                lines = this.parse(buf.array(), buf.position());
+            }
+            if (first && lines > Fingerprints.GARBAGE + 2 * this.prints.size()) {
+                this.compact();
+            }
+        }
+    }
+
+    /**
+     * Parse complete lines of the manifest and move the position
+     * of the read bytes behind them.
+     * @param bytes Bytes of the manifest, starting from the position
+     * @param length How many of them were read
+     * @return How many lines were parsed
+     */
+    private int parse(final byte[] bytes, final int length) {
+        int lines = 0;
+        int start = 0;
+        for (int idx = 0; idx < length; ++idx) {
+            if (bytes[idx] == '\n') {
+                final String[] parts = new String(
+                    bytes, start, idx - start, StandardCharsets.UTF_8
+                ).split(" ", 2);
+                if (parts.length == 2) {
+                    this.prints.put(parts[1], parts[0]);
+                }
+                ++lines;
+                start = idx + 1;
+            }
+        }
+        this.done += start;
+        return lines;
+    }
+
+    /**
+     * Replace the manifest with a new file, which has only the last
+     * line of every source, including lines added by others meanwhile.
+     * @throws IOException If fails
+     */
+    private void compact() throws IOException {
+        this.mutex.run(
+            () -> {
+                this.tail();
+                final StringBuilder text = new StringBuilder(0);
+                for (final Map.Entry<String, String> ent : this.prints.entrySet()) {
+                    text.append(ent.getValue()).append(' ').append(ent.getKey()).append('\n');
+                }
+                final Path tmp = Files.createTempFile(
+                    this.file.toAbsolutePath().getParent(), Fingerprints.MANIFEST, ".tmp"
+                );
+                try {
+                    Files.write(tmp, text.toString().getBytes(StandardCharsets.UTF_8));
+                    Files.move(
+                        tmp, this.file,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+                    );
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                this.done = 0L;
+                this.identity = null;
+                return null;
+            }
+        );
+    }
+
+    /**
+     * Hash the source code together with the version of the compiler.
+     * @param bytes Source code
+     * @return Hex representation of the hash
+     */
+    private String hash(final byte[] bytes) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        digest.update(this.version.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        final StringBuilder hex = new StringBuilder(64);
+        for (final byte part : digest.digest(bytes)) {
+            hex.append(String.format("%02x", part));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Version of the EO compiler in the classpath.
+     * @return The version
+     */
+    private static String compiler() {
+        final String name = "EO-Version";
+        final String ver;
+        if (Manifests.exists(name)) {
+            ver = Manifests.read(name);
+        } else {
+            ver = "unknown";
+        }
+        return ver;
+    }
+
+    /**
+     * Fingerprint calculated for a certain version of the file.
+     *
+     * @since 1.0
+     */
+    private static final class Calculated {
+
+        /**
+         * The fingerprint.
+         */
+        private final String hash;
+
+        /**
+         * Size of the file, in bytes.
+         */
+        private final long bytes;
+
+        /**
+         * Last modification time of the file, in milliseconds.
+         */
+        private final long time;
+
+        /**
+         * Ctor.
+         * @param print The fingerprint
+         * @param size Size of the file
+         * @param modified Modification time of the file
+         */
+        Calculated(final String print, final long size, final long modified) {
+            this.hash = print;
+            this.bytes = size;
+            this.time = modified;
+        }
+
+        /**
+         * The fingerprint.
+         * @return The fingerprint
+         */
+        String print() {
+            return this.hash;
+        }
+
+        /**
+         * Is it calculated for this version of the file?
+         * @param size Current size of the file
+         * @param modified Current modification time of the file
+         * @return TRUE if it is
+         */
+        boolean fresh(final long size, final long modified) {
+            return this.bytes == size && this.time == modified;
+        }
+    }
+}
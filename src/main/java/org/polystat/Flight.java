@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.Set;
+import java.util.TreeSet;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.cactoos.list.ListOf;
+
+/**
+ * Events of Java Flight Recorder, one for each stage of the pipeline.
+ *
+ * <p>This is the only class that touches {@code jdk.jfr}, which
+ * is missing in Java 8 before 8u272, so it is never loaded unless
+ * {@link Events} find it there. Stack traces are not recorded, since
+ * the fields say enough.</p>
+ *
+ * @since 1.0
+ */
+final class Flight {
+
+    /**
+     * Ctor.
+     */
+    private Flight() {
+        // utility class
+    }
+
+    /**
+     * Compilation of a source into XMIR, by {@code Syntax}
+     * and {@code Xsline}.
+     *
+     * @since 1.0
+     */
+    @Name("org.polystat.Compile")
+    @Label("Compile")
+    @Category("Polystat")
+    @StackTrace(false)
+    @Description("Parsing of an EO source and XSL passes over it")
+    static final class Compile extends Event implements Events.Span {
+
+        /**
+         * Path of the source.
+         */
+        @Label("File")
+        private String file;
+
+        /**
+         * Ctor.
+         * @param src Path of the source
+         */
+        Compile(final String src) {
+            super();
+            this.file = src;
+        }
+
+        @Override
+        public void finish() {
+            this.commit();
+        }
+    }
+
+    /**
+     * Loading of XMIR into memory, either from disk or from the cache.
+     *
+     * @since 1.0
+     */
+    @Name("org.polystat.Load")
+    @Label("Load XMIR")
+    @Category("Polystat")
+    @StackTrace(false)
+    static final class Load extends Event implements Events.Span {
+
+        /**
+         * Path of XMIR.
+         */
+        @Label("File")
+        private String file;
+
+        /**
+         * Ctor.
+         * @param xml Path of XMIR
+         */
+        Load(final String xml) {
+            super();
+            this.file = xml;
+        }
+
+        @Override
+        public void finish() {
+            this.commit();
+        }
+    }
+
+    /**
+     * Lookup of an object in XMIR by its locator.
+     *
+     * @since 1.0
+     */
+    @Name("org.polystat.Locate")
+    @Label("Locate")
+    @Category("Polystat")
+    @StackTrace(false)
+    static final class Locate extends Event implements Events.Span {
+
+        /**
+         * Path of XMIR.
+         */
+        @Label("File")
+        private String file;
+
+        /**
+         * Locator of the object.
+         */
+        @Label("Locator")
+        private String locator;
+
+        /**
+         * Ctor.
+         * @param xml Path of XMIR
+         * @param lctr Locator of the object
+         */
+        Locate(final String xml, final String lctr) {
+            super();
+            this.file = xml;
+            this.locator = lctr;
+        }
+
+        @Override
+        public void finish() {
+            this.commit();
+        }
+    }
+
+    /**
+     * Analysis of one object by one analyzer.
+     *
+     * @since 1.0
+     */
+    @Name("org.polystat.Analyze")
+    @Label("Analyze")
+    @Category("Polystat")
+    @StackTrace(false)
+    static final class Analyze extends Event
+        implements Events.Outcome<Iterable<Result>> {
+
+        /**
+         * Simple name of the analyzer.
+         */
+        @Label("Analyzer")
+        private String analyzer;
+
+        /**
+         * Locator of the object.
+         */
+        @Label("Locator")
+        private String locator;
+
+        /**
+         * Rule ids of the results, comma separated.
+         */
+        @Label("Rule ids")
+        private String rules;
+
+        /**
+         * Outcome: "clean", "defects" or "failed".
+         */
+        @Label("Outcome")
+        private String outcome;
+
+        /**
+         * Ctor.
+         * @param type Type of the analyzer
+         * @param lctr Locator of the object
+         */
+        Analyze(final Class<? extends Analysis> type, final String lctr) {
+            super();
+            this.analyzer = type.getSimpleName();
+            this.locator = lctr;
+        }
+
+        @Override
+        public void finish(final Iterable<Result> results) {
+            this.end();
+            if (this.shouldCommit()) {
+                final Set<String> ids = new TreeSet<>();
+                for (final Result res : results) {
+                    ids.add(res.ruleId());
+                }
+                this.rules = String.join(",", ids);
+                this.outcome = Events.outcome(results);
+                this.commit();
+            }
+        }
+    }
+
+    /**
+     * Rendering of one result in the report.
+     *
+     * @since 1.0
+     */
+    @Name("org.polystat.Render")
+    @Label("Render")
+    @Category("Polystat")
+    @StackTrace(false)
+    static final class Render extends Event implements Events.Outcome<Result> {
+
+        /**
+         * Simple name of the analyzer.
+         */
+        @Label("Analyzer")
+        private String analyzer;
+
+        /**
+         * Rule id of the result.
+         */
+        @Label("Rule id")
+        private String rule;
+
+        /**
+         * Outcome: "clean", "defects" or "failed".
+         */
+        @Label("Outcome")
+        private String outcome;
+
+        @Override
+        public void finish(final Result res) {
+            this.end();
+            if (this.shouldCommit()) {
+                this.analyzer = res.analysis().getSimpleName();
+                this.rule = res.ruleId();
+                this.outcome = Events.outcome(new ListOf<Result>(res));
+                this.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import com.jcabi.xml.XML;
+import java.lang.ref.WeakReference;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.cactoos.Func;
+
+/**
+ * Hierarchy of an object: the object itself together with all objects
+ * it decorates, directly or transitively.
+ *
+ * <p>Each object of the hierarchy is included only once, after
+ * all of its decoratees, so the size of the result is linear in the
+ * number of distinct objects, even when they share bases. Cycles,
+ * where objects decorate each other, are detected and cut. Decoratees
+ * without sources, like {@code org.eolang.int}, are left out.
+ * Decoratees are located by the fully qualified names of their bases,
+ * for example {@code \Phi.sandbox.mutual_rec}.</p>
+ *
+ * <p>Direct decoratees of every object are memoized, keyed by the XMIR
+ * of the object, so the memo is dropped together with the XMIR.
+ * The XML of the hierarchy is memoized the same way, and is built again
+ * only if any object of the hierarchy is not the same XMIR anymore.
+ * That is why one hierarchy is shared by the {@link CachedAnalysis},
+ * which hashes it, and by {@link AnOdin}, which analyzes it.</p>
+ *
+ * @since 1.0
+ */
+final class Hierarchy {
+
+    /**
+     * Locators of direct decoratees, by XMIR of the decorator.
+     */
+    private final Map<XML, List<String>> memo;
+
+    /**
+     * XML of hierarchies, by XMIR of the objects.
+     */
+    private final Map<XML, Hierarchy.Built> built;
+
+    /**
+     * Ctor.
+     */
+    Hierarchy() {
+        this.memo = Collections.synchronizedMap(new WeakHashMap<>(0));
+        this.built = Collections.synchronizedMap(new WeakHashMap<>(0));
+    }
+
+    /**
+     * Build a well-formed XML with all objects of the hierarchy.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the object
+     * @return XML with the objects that form the hierarchy
+     * @throws Exception If fails
+     */
+    public String xml(final Func<String, XML> xmir, final String locator)
+        throws Exception {
+        final XML root = xmir.apply(locator);
+        final List<XML> objects = new ArrayList<>(1);
+        this.append(objects, xmir, locator, root, new HashSet<>(0), new HashSet<>(0));
+        Hierarchy.Built found = this.built.get(root);
+        if (found == null || !found.of(objects)) {
+            final StringBuilder out = new StringBuilder(0)
+                .append("<objects>")
+                .append(System.lineSeparator());
+            for (final XML object : objects) {
+                out.append(object.toString());
+            }
+            found = new Hierarchy.Built(
+                objects,
+                out.append(System.lineSeparator())
+                    .append("</objects>")
+                    .toString()
+            );
+            this.built.put(root, found);
+        }
+        return found.xml();
+    }
+
+    /**
+     * Locators of all objects of the hierarchy, including the object itself
+     * and decoratees without sources.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the object
+     * @return Locators, for example {@code \Phi.foo}
+     * @throws Exception If fails
+     */
+    public Set<String> locators(final Func<String, XML> xmir, final String locator)
+        throws Exception {
+        final Set<String> done = new HashSet<>(0);
+        this.append(
+            new LinkedList<>(), xmir, locator, xmir.apply(locator),
+            done, new HashSet<>(0)
+        );
+        return done;
+    }
+
+    /**
+     * Locators of direct decoratees of the object.
+     * @param object XMIR of the object
+     * @return Locators, for example {@code \Phi.foo}
+     */
+    public List<String> decoratees(final XML object) {
+        List<String> found = this.memo.get(object);
+        if (found == null) {
+            found = new ArrayList<>(1);
+            for (final String base : object.xpath("o[@name='@']/@base")) {
+                if (base.charAt(0) != '.') {
+                    found.add(String.format("\\Phi.%s", base));
+                }
+            }
+            this.memo.put(object, found);
+        }
+        return found;
+    }
+
+    /**
+     * Append the object, after all its decoratees.
+     * @param out Where to append
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the object
+     * @param object XMIR of the object
+     * @param done Locators of objects already appended
+     * @param path Locators of objects being appended now
+     * @throws Exception If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void append(final List<XML> out, final Func<String, XML> xmir,
+        final String locator, final XML object, final Set<String> done,
+        final Set<String> path) throws Exception {
+        path.add(locator);
+        for (final String decoratee : this.decoratees(object)) {
+            if (path.contains(decoratee)) {
+                Logger.debug(
+                    this, "Cyclic decoration of %s by %s is cut", decoratee, locator
+                );
+            } else if (!done.contains(decoratee)) {
+                final XML base = Hierarchy.resolved(xmir, decoratee);
+                if (base == null) {
+                    done.add(decoratee);
+                } else {
+                    this.append(out, xmir, decoratee, base, done, path);
+                }
+            }
+        }
+        path.remove(locator);
+        done.add(locator);
+        out.add(object);
+    }
+
+    /**
+     * Retrieve XMIR of the decoratee, if it has sources.
+     * @param xmir Function to retrieve XMIR by locator
+     * @param locator Locator of the decoratee
+     * @return XMIR or NULL if there are no sources of it
+     * @throws Exception If fails
+     */
+    private static XML resolved(final Func<String, XML> xmir, final String locator)
+        throws Exception {
+        XML found;
+        try {
+            found = xmir.apply(locator);
+        } catch (final NoSuchFileException ex) {
+            Logger.debug(Hierarchy.class, "No sources of %s", locator);
+            found = null;
+        }
+        return found;
+    }
+
+    /**
+     * XML of a hierarchy, together with the objects it was built of.
+     * The objects are referenced weakly, so that the memo doesn't keep
+     * them, and their XMIR, in memory.
+     *
+     * @since 1.0
+     */
+    private static final class Built {
+
+        /**
+         * Objects of the hierarchy, in the order they are in the XML.
+         */
+        private final List<WeakReference<XML>> objects;
+
+        /**
+         * The XML.
+         */
+        private final String text;
+
+        /**
+         * Ctor.
+         * @param objects Objects of the hierarchy
+         * @param text The XML
+         */
+        Built(final List<XML> objects, final String text) {
+            this.objects = new ArrayList<>(objects.size());
+            for (final XML object : objects) {
+                this.objects.add(new WeakReference<>(object));
+            }
+            this.text = text;
+        }
+
+        /**
+         * The XML.
+         * @return The XML
+         */
+        String xml() {
+            return this.text;
+        }
+
+        /**
+         * Is it built of the same objects?
+         * @param others Objects of the hierarchy now
+         * @return TRUE if all of them are the same XMIR
+         */
+        boolean of(final List<XML> others) {
+            boolean same = this.objects.size() == others.size();
+            for (int idx = 0; same && idx < others.size(); ++idx) {
+                same = this.objects.get(idx).get() == others.get(idx);
+            }
+            return same;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Objects of a compiled program, by their paths.
+ *
+ * <p>The index is built once, when the XMIR document is loaded, with one
+ * pass over its DOM. After that, resolving an object like {@code test.fv}
+ * is a single hash lookup instead of one XPath query per segment.
+ * If there are a few objects with the same name, the first one wins,
+ * just like with {@code o[@name='...'][1]}.</p>
+ *
+ * <p>The DOM is shared by all threads, so XMIR found here is read
+ * by one thread at a time, see {@link SyncedXml}. XMIR of the whole
+ * document is serialized only when it is requested.</p>
+ *
+ * @since 1.0
+ */
+final class Index {
+
+    /**
+     * DOM of the document, which is also the lock of its readers.
+     */
+    private final Node root;
+
+    /**
+     * The whole document, once it is requested.
+     */
+    private XML document;
+
+    /**
+     * Object nodes by their paths, for example {@code test.fv}.
+     */
+    private final Map<String, Node> objects;
+
+    /**
+     * XMIR of objects, which were already requested, by their paths.
+     */
+    private final Map<String, XML> requested;
+
+    /**
+     * Ctor.
+     * @param dom DOM of the XMIR document
+     */
+    Index(final Node dom) {
+        this.root = dom;
+        this.objects = new HashMap<>(0);
+        this.requested = new ConcurrentHashMap<>(0);
+        for (Node top = dom.getFirstChild(); top != null; top = top.getNextSibling()) {
+            if (Index.named(top, "program")) {
+                for (Node sub = top.getFirstChild(); sub != null; sub = sub.getNextSibling()) {
+                    if (Index.named(sub, "objects")) {
+                        this.add("", sub);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The whole XMIR document.
+     * @return The document
+     */
+    public XML xml() {
+        synchronized (this.root) {
+            if (this.document == null) {
+                this.document = new SyncedXml(new XMLDocument(this.root), this.root);
+            }
+            return this.document;
+        }
+    }
+
+    /**
+     * Find the object by its path.
+     *
+     * <p>The same instance of {@link XML} is returned for the same path,
+     * so the object is serialized only once, no matter how many analyzers
+     * and decorators ask for it.</p>
+     * @param path The path, for example {@code test.fv}
+     * @return XMIR of the object
+     */
+    public XML object(final String path) {
+        return this.requested.computeIfAbsent(
+            path,
+            key -> {
+                final Node node = this.objects.get(key);
+                if (node == null) {
+                    throw new IllegalArgumentException(
+                        String.format("Object '%s' not found in XMIR", key)
+                    );
+                }
+                synchronized (this.root) {
+                    return new SyncedXml(new XMLDocument(node), this.root);
+                }
+            }
+        );
+    }
+
+    /**
+     * Add all named children of the node to the index, recursively.
+     * @param prefix Path of the parent, with a trailing dot, or empty
+     * @param parent The parent node
+     */
+    private void add(final String prefix, final Node parent) {
+        for (Node kid = parent.getFirstChild(); kid != null; kid = kid.getNextSibling()) {
+            if (Index.named(kid, "o") && ((Element) kid).hasAttribute("name")) {
+                final String path = prefix + ((Element) kid).getAttribute("name");
+                this.objects.putIfAbsent(path, kid);
+                this.add(String.format("%s.", path), kid);
+            }
+        }
+    }
+
+    /**
+     * Is it an element with this name?
+     * @param node The node
+     * @param name Name of the element
+     * @return TRUE if it is
+     */
+    private static boolean named(final Node node, final String name) {
+        return node.getNodeType() == Node.ELEMENT_NODE
+            && name.equals(node.getNodeName());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * One object of an XMIR file, read lazily, without building DOM
+ * of the whole file.
+ *
+ * <p>The file is streamed with StAX. Elements, which are not on the way
+ * to the object, are skipped without being materialized, and only
+ * the object itself together with its children is built into DOM.
+ * Reading stops as soon as the object is closed, so memory scales
+ * with the size of the object, not with the size of the file.
+ * If there are a few objects with the same name, the first one wins,
+ * just like in {@link Index}.</p>
+ *
+ * @since 1.0
+ * @checkstyle AbbreviationAsWordInNameCheck (5 lines)
+ */
+final class LazyXmir {
+
+    /**
+     * Names of elements from the root to the objects.
+     */
+    private static final String[] TOP = {"program", "objects"};
+
+    /**
+     * The {@code .xml} file.
+     */
+    private final Path file;
+
+    /**
+     * Ctor.
+     * @param xml The {@code .xml} file
+     */
+    LazyXmir(final Path xml) {
+        this.file = xml;
+    }
+
+    /**
+     * Find the object by its path and read it.
+     * @param path The path, for example {@code test.fv}
+     * @return XMIR of the object
+     * @throws IOException If fails to read the file
+     */
+    public XML object(final String path) throws IOException {
+        final String[] names = path.split("\\.");
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try (InputStream input = Files.newInputStream(this.file)) {
+            final XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                int matched = 0;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (!LazyXmir.matches(reader, matched, names)) {
+                            LazyXmir.skip(reader);
+                        } else if (matched == LazyXmir.TOP.length + names.length - 1) {
+                            return new XMLDocument(LazyXmir.subtree(reader));
+                        } else {
+                            ++matched;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        --matched;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException ex) {
+            throw new IOException(
+                String.format("Can't read XMIR in %s", this.file), ex
+            );
+        }
+        throw new IllegalArgumentException(
+            String.format("Object '%s' not found in XMIR", path)
+        );
+    }
+
+    /**
+     * Is the element, the reader is at, the next one on the way
+     * to the object?
+     * @param reader The reader, at the start of an element
+     * @param matched How many elements on the way are already open
+     * @param names Names of objects on the way
+     * @return TRUE if it is
+     */
+    private static boolean matches(final XMLStreamReader reader, final int matched,
+        final String... names) {
+        final boolean yes;
+        if (matched < LazyXmir.TOP.length) {
+            yes = LazyXmir.TOP[matched].equals(reader.getLocalName());
+        } else {
+            yes = "o".equals(reader.getLocalName())
+                && names[matched - LazyXmir.TOP.length].equals(
+                    reader.getAttributeValue(null, "name")
+                );
+        }
+        return yes;
+    }
+
+    /**
+     * Skip the element, the reader is at, with all its children.
+     * @param reader The reader, at the start of an element
+     * @throws XMLStreamException If fails
+     */
+    private static void skip(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                ++depth;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                --depth;
+            }
+        }
+    }
+
+    /**
+     * Build DOM of the element, the reader is at, with all its children.
+     * @param reader The reader, at the start of an element
+     * @return The element
+     * @throws XMLStreamException If fails
+     */
+    private static Element subtree(final XMLStreamReader reader) throws XMLStreamException {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Document doc;
+        try {
+            doc = factory.newDocumentBuilder().newDocument();
+        } catch (final ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        Node parent = LazyXmir.element(doc, reader);
+        doc.appendChild(parent);
+        while (parent != doc) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final Element element = LazyXmir.element(doc, reader);
+                parent.appendChild(element);
+                parent = element;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                parent = parent.getParentNode();
+            } else if (event == XMLStreamConstants.CHARACTERS
+                || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE) {
+                parent.appendChild(doc.createTextNode(reader.getText()));
+            } else if (event == XMLStreamConstants.COMMENT) {
+                parent.appendChild(doc.createComment(reader.getText()));
+            } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                parent.appendChild(
+                    doc.createProcessingInstruction(reader.getPITarget(), reader.getPIData())
+                );
+            }
+        }
+        return doc.getDocumentElement();
+    }
+
+    /**
+     * Create the element, the reader is at, with its attributes.
+     * @param doc The document to create it in
+     * @param reader The reader, at the start of an element
+     * @return The element
+     */
+    private static Element element(final Document doc, final XMLStreamReader reader) {
+        final Element element = doc.createElementNS(
+            reader.getNamespaceURI(),
+            BinaryXmir.qualified(reader.getPrefix(), reader.getLocalName())
+        );
+        for (int idx = 0; idx < reader.getNamespaceCount(); ++idx) {
+            final String prefix = reader.getNamespacePrefix(idx);
+            final String name;
+            if (prefix == null || prefix.isEmpty()) {
+                name = XMLConstants.XMLNS_ATTRIBUTE;
+            } else {
+                name = String.format("%s:%s", XMLConstants.XMLNS_ATTRIBUTE, prefix);
+            }
+            element.setAttributeNS(
+                XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, reader.getNamespaceURI(idx)
+            );
+        }
+        for (int idx = 0; idx < reader.getAttributeCount(); ++idx) {
+            element.setAttributeNS(
+                reader.getAttributeNamespace(idx),
+                BinaryXmir.qualified(
+                    reader.getAttributePrefix(idx), reader.getAttributeLocalName(idx)
+                ),
+                reader.getAttributeValue(idx)
+            );
+        }
+        return element;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonParser;
+import picocli.CommandLine;
+
+/**
+ * Merge of SARIF logs, produced by shards of one analysis, into one log.
+ *
+ * <p>The merged log has one run, with the tool of the first log,
+ * and all results and then all invocations of all runs of all logs,
+ * in the order the logs are given. Logs are read one by one, twice,
+ * so only one log is in memory at a time.</p>
+ *
+ * @since 1.0
+ */
+@CommandLine.Command(
+    name = "merge",
+    description = "Merge SARIF logs of shards into one log",
+    mixinStandardHelpOptions = true,
+    versionProvider = Polystat.Version.class
+)
+final class Merge implements Callable<Integer> {
+
+    /**
+     * SARIF property "runs".
+     */
+    private static final String RUNS = "runs";
+
+    /**
+     * Logs to merge.
+     */
+    @CommandLine.Parameters(
+        arity = "1..*",
+        description = "SARIF logs to merge"
+    )
+    private List<Path> logs = new ArrayList<>(0);
+
+    /**
+     * File to write the merged log to.
+     */
+    @CommandLine.Option(
+        names = "--output",
+        description = "The file to write the merged log to, instead of the console"
+    )
+    private Path output;
+
+    @Override
+    public Integer call() throws IOException {
+        if (this.output == null) {
+            final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+            );
+            this.merge(writer);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(this.output, StandardCharsets.UTF_8)) {
+                this.merge(writer);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Merge all logs.
+     * @param writer Where to write the merged log
+     * @throws IOException If fails to read logs
+     */
+    private void merge(final Writer writer) throws IOException {
+        final JsonObject first = Merge.read(this.logs.get(0));
+        final JsonGenerator json = Json.createGenerator(writer)
+            .writeStartObject()
+            .write("version", first.get("version"))
+            .write("$schema", first.get("$schema"))
+            .writeStartArray(Merge.RUNS)
+            .writeStartObject()
+            .write("tool", first.getJsonArray(Merge.RUNS).getJsonObject(0).get("tool"));
+        for (final String section : new String[] {"results", "invocations"}) {
+            json.writeStartArray(section);
+            for (final Path log : this.logs) {
+                for (final JsonValue run : Merge.read(log).getJsonArray(Merge.RUNS)) {
+                    final JsonObject obj = run.asJsonObject();
+                    if (obj.containsKey(section)) {
+                        for (final JsonValue value : obj.getJsonArray(section)) {
+                            json.write(value);
+                        }
+                    }
+                }
+            }
+            json.writeEnd();
+        }
+        json.writeEnd().writeEnd().writeEnd();
+        json.flush();
+        writer.write(System.lineSeparator());
+    }
+
+    /**
+     * Read the log.
+     * @param log Path of the log
+     * @return The log
+     * @throws IOException If fails
+     */
+    private static JsonObject read(final Path log) throws IOException {
+        try (
+            InputStream input = Files.newInputStream(log);
+            JsonParser parser = Json.createParser(input)
+        ) {
+            parser.next();
+            return parser.getObject();
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * Wall time of pipeline stages and hit rates of caches, which can
+ * be saved as JSON or in the text format of Prometheus.
+ *
+ * <p>The count, the sum and the maximum of durations of a stage are
+ * exact. Percentiles are taken by the nearest rank from a uniform sample
+ * of at most {@link #RESERVOIR} durations, so they are exact for short
+ * scans and memory doesn't grow with long ones. It's safe to record
+ * from many threads. Disabled metrics record nothing.</p>
+ *
+ * @since 1.0
+ */
+final class Metrics {
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final double MILLI = 1.0e6;
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double SECOND = 1.0e9;
+
+    /**
+     * How many durations of a stage are sampled for percentiles.
+     */
+    private static final int RESERVOIR = 1024;
+
+    /**
+     * Whether to record anything.
+     */
+    private final boolean enabled;
+
+    /**
+     * Durations in nanoseconds, by stages.
+     */
+    private final ConcurrentMap<String, Metrics.Samples> stages;
+
+    /**
+     * Hits and misses, by caches.
+     */
+    private final ConcurrentMap<String, LongSupplier[]> caches;
+
+    /**
+     * Ctor.
+     */
+    Metrics() {
+        this(true);
+    }
+
+    /**
+     * Ctor.
+     * @param enabled Whether to record anything
+     */
+    Metrics(final boolean enabled) {
+        this.enabled = enabled;
+        this.stages = new ConcurrentHashMap<>(0);
+        this.caches = new ConcurrentHashMap<>(0);
+    }
+
+    /**
+     * Record one run of the stage, which started at the given moment
+     * and has just finished.
+     * @param stage Name of the stage, for example "parse"
+     * @param start Value of {@link System#nanoTime()} at the start
+     */
+    public void record(final String stage, final long start) {
+        if (this.enabled) {
+            this.stages.computeIfAbsent(stage, key -> new Metrics.Samples())
+                .add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Watch hits and misses of the cache, which are read when
+     * the metrics are printed.
+     * @param cache Name of the cache, for example "xmir"
+     * @param hits How many times something was found
+     * @param misses How many times it wasn't
+     */
+    public void cache(final String cache, final LongSupplier hits,
+        final LongSupplier misses) {
+        if (this.enabled) {
+            this.caches.put(cache, new LongSupplier[] {hits, misses});
+        }
+    }
+
+    /**
+     * Save to the file, in the text format of Prometheus if the file
+     * ends with ".prom", or as JSON otherwise.
+     * @param file The file
+     * @throws IOException If fails
+     */
+    public void save(final Path file) throws IOException {
+        final String text;
+        if (file.getFileName().toString().endsWith(".prom")) {
+            text = this.prometheus();
+        } else {
+            text = this.json();
+        }
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Print as JSON, with durations in milliseconds.
+     * @return JSON
+     */
+    public String json() {
+        final JsonObjectBuilder stgs = Json.createObjectBuilder();
+        for (final Map.Entry<String, Metrics.Summary> ent : this.summaries().entrySet()) {
+            final Metrics.Summary all = ent.getValue();
+            stgs.add(
+                ent.getKey(),
+                Json.createObjectBuilder()
+                    .add("count", all.count())
+                    .add("total_ms", all.sum() / Metrics.MILLI)
+                    .add("p50_ms", all.rank(0.5) / Metrics.MILLI)
+                    .add("p95_ms", all.rank(0.95) / Metrics.MILLI)
+                    .add("max_ms", all.rank(1.0) / Metrics.MILLI)
+            );
+        }
+        final JsonObjectBuilder cchs = Json.createObjectBuilder();
+        for (final Map.Entry<String, long[]> ent : this.counted().entrySet()) {
+            final long[] pair = ent.getValue();
+            cchs.add(
+                ent.getKey(),
+                Json.createObjectBuilder()
+                    .add("hits", pair[0])
+                    .add("misses", pair[1])
+                    .add("hit_rate", Metrics.rate(pair))
+            );
+        }
+        return Json.createObjectBuilder()
+            .add("stages", stgs)
+            .add("caches", cchs)
+            .build()
+            .toString();
+    }
+
+    /**
+     * Print in the text format of Prometheus, with durations in seconds.
+     * @return Text
+     */
+    public String prometheus() {
+        final StringBuilder out = new StringBuilder(0)
+            .append("# HELP polystat_stage_seconds Wall time of pipeline stages\n")
+            .append("# TYPE polystat_stage_seconds summary\n");
+        for (final Map.Entry<String, Metrics.Summary> ent : this.summaries().entrySet()) {
+            final Metrics.Summary all = ent.getValue();
+            for (final double quantile : new double[] {0.5, 0.95, 1.0}) {
+                out.append(
+                    String.format(
+                        Locale.ENGLISH,
+                        "polystat_stage_seconds{stage=\"%s\",quantile=\"%s\"} %.9f\n",
+                        ent.getKey(), quantile, all.rank(quantile) / Metrics.SECOND
+                    )
+                );
+            }
+            out.append(
+                String.format(
+                    Locale.ENGLISH,
+                    "polystat_stage_seconds_sum{stage=\"%s\"} %.9f\n",
+                    ent.getKey(), all.sum() / Metrics.SECOND
+                )
+            ).append(
+                String.format(
+                    "polystat_stage_seconds_count{stage=\"%s\"} %d\n",
+                    ent.getKey(), all.count()
+                )
+            );
+        }
+        out.append("# HELP polystat_cache_hits_total Lookups that found something\n")
+            .append("# TYPE polystat_cache_hits_total counter\n");
+        final Map<String, long[]> cchs = this.counted();
+        for (final Map.Entry<String, long[]> ent : cchs.entrySet()) {
+            out.append(
+                String.format(
+                    "polystat_cache_hits_total{cache=\"%s\"} %d\n",
+                    ent.getKey(), ent.getValue()[0]
+                )
+            );
+        }
+        out.append("# HELP polystat_cache_misses_total Lookups that found nothing\n")
+            .append("# TYPE polystat_cache_misses_total counter\n");
+        for (final Map.Entry<String, long[]> ent : cchs.entrySet()) {
+            out.append(
+                String.format(
+                    "polystat_cache_misses_total{cache=\"%s\"} %d\n",
+                    ent.getKey(), ent.getValue()[1]
+                )
+            );
+        }
+        return out.toString();
+    }
+
+    /**
+     * Summaries of durations, by stages in alphabetical order.
+     * @return Summaries
+     */
+    private Map<String, Metrics.Summary> summaries() {
+        final Map<String, Metrics.Summary> all = new TreeMap<>();
+        for (final Map.Entry<String, Metrics.Samples> ent : this.stages.entrySet()) {
+            all.put(ent.getKey(), ent.getValue().summary());
+        }
+        return all;
+    }
+
+    /**
+     * Hits and misses, by caches in alphabetical order.
+     * @return Pairs of hits and misses
+     */
+    private Map<String, long[]> counted() {
+        final Map<String, long[]> all = new TreeMap<>();
+        for (final Map.Entry<String, LongSupplier[]> ent : this.caches.entrySet()) {
+            all.put(
+                ent.getKey(),
+                new long[] {
+                    ent.getValue()[0].getAsLong(),
+                    ent.getValue()[1].getAsLong(),
+                }
+            );
+        }
+        return all;
+    }
+
+    /**
+     * Hit rate.
+     * @param pair Hits and misses
+     * @return Share of hits, or zero if there were no lookups
+     */
+    private static double rate(final long[] pair) {
+        double rate = 0.0;
+        if (pair[0] + pair[1] > 0L) {
+            rate = (double) pair[0] / (pair[0] + pair[1]);
+        }
+        return rate;
+    }
+
+    /**
+     * Durations of one stage: exact count, sum and maximum, and
+     * a uniform sample of them, by the reservoir sampling.
+     *
+     * @since 1.0
+     */
+    private static final class Samples {
+
+        /**
+         * Sampled durations: all of them, until it's full, and a uniform
+         * sample of all of them after that.
+         */
+        private final long[] sample;
+
+        /**
+         * How many durations there were.
+         */
+        private long count;
+
+        /**
+         * Sum of all durations.
+         */
+        private long sum;
+
+        /**
+         * The longest duration.
+         */
+        private long max;
+
+        /**
+         * Ctor.
+         */
+        Samples() {
+            this.sample = new long[Metrics.RESERVOIR];
+        }
+
+        /**
+         * Add one.
+         * @param nanos Duration
+         */
+        public synchronized void add(final long nanos) {
+            if (this.count < this.sample.length) {
+                this.sample[(int) this.count] = nanos;
+            } else {
+                final long pos = ThreadLocalRandom.current().nextLong(this.count + 1L);
+                if (pos < this.sample.length) {
+                    this.sample[(int) pos] = nanos;
+                }
+            }
+            ++this.count;
+            this.sum += nanos;
+            this.max = Math.max(this.max, nanos);
+        }
+
+        /**
+         * Summary of them so far.
+         * @return Summary
+         */
+        public synchronized Metrics.Summary summary() {
+            final long[] sorted = Arrays.copyOf(
+                this.sample, (int) Math.min(this.count, this.sample.length)
+            );
+            Arrays.sort(sorted);
+            return new Metrics.Summary(this.count, this.sum, this.max, sorted);
+        }
+    }
+
+    /**
+     * Durations of one stage, at some moment.
+     *
+     * @since 1.0
+     */
+    private static final class Summary {
+
+        /**
+         * How many durations there were.
+         */
+        private final long total;
+
+        /**
+         * Sum of all durations.
+         */
+        private final long nanos;
+
+        /**
+         * The longest duration.
+         */
+        private final long longest;
+
+        /**
+         * Sampled durations, in ascending order.
+         */
+        private final long[] sorted;
+
+        /**
+         * Ctor.
+         * @param total How many durations there were
+         * @param nanos Sum of all durations
+         * @param longest The longest duration
+         * @param sorted Sampled durations, in ascending order
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        Summary(final long total, final long nanos, final long longest,
+            final long[] sorted) {
+            this.total = total;
+            this.nanos = nanos;
+            this.longest = longest;
+            this.sorted = sorted;
+        }
+
+        /**
+         * How many durations there were.
+         * @return The count
+         */
+        public long count() {
+            return this.total;
+        }
+
+        /**
+         * Sum of all durations.
+         * @return The sum
+         */
+        public long sum() {
+            return this.nanos;
+        }
+
+        /**
+         * Percentile of sampled durations, by the nearest rank. The
+         * maximum is always exact.
+         * @param quantile The quantile, from zero to one
+         * @return The duration
+         */
+        public long rank(final double quantile) {
+            final long rank;
+            if (quantile >= 1.0) {
+                rank = this.longest;
+            } else {
+                final int pos = (int) Math.ceil(quantile * this.sorted.length) - 1;
+                rank = this.sorted[Math.max(0, pos)];
+            }
+            return rank;
+        }
+    }
+}
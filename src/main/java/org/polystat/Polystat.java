@@ -26,22 +26,47 @@ package org.polystat;
 import com.jcabi.log.Logger;
 import com.jcabi.manifests.Manifests;
 import com.jcabi.xml.XML;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 import org.cactoos.Func;
+import org.cactoos.Scalar;
+import org.cactoos.func.UncheckedFunc;
+import org.cactoos.io.InputOf;
 import org.cactoos.io.OutputTo;
-import org.cactoos.io.Stdin;
 import org.cactoos.io.TeeInput;
 import org.cactoos.list.ListOf;
 import org.cactoos.scalar.LengthOf;
+import org.cactoos.scalar.Unchecked;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 
@@ -56,21 +81,12 @@ import picocli.CommandLine.ArgGroup;
  */
 @CommandLine.Command(
     name = "polystat",
-    helpCommand = true,
     description = "Read our README in GitHub",
     mixinStandardHelpOptions = true,
     versionProvider = Polystat.Version.class
 )
 public final class Polystat implements Callable<Integer> {
 
-    /**
-     * Analyzers.
-     */
-    private static final Analysis[] ALL = {
-        new AnFaR(),
-        new AnOdin(),
-    };
-
     /**
      * Either "include" list or "exclude" list.
      */
@@ -86,6 +102,36 @@ public final class Polystat implements Callable<Integer> {
     )
     private Path source;
 
+    /**
+     * Glob patterns of sources to analyze, relative to the sources directory.
+     */
+    @CommandLine.Option(
+        names = "--include-files",
+        split = ",",
+        description = "Analyze only sources that match these globs, for example 'sandbox/**'"
+    )
+    private List<String> includes = new ArrayList<>(0);
+
+    /**
+     * Glob patterns of sources not to analyze, relative to the sources directory.
+     */
+    @CommandLine.Option(
+        names = "--exclude-files",
+        split = ",",
+        description = "Don't analyze sources that match these globs"
+    )
+    private List<String> excludes = new ArrayList<>(0);
+
+    /**
+     * Shard of programs to analyze, when they are split between machines.
+     */
+    @CommandLine.Option(
+        names = "--shard",
+        defaultValue = "1/1",
+        description = "Analyze only this shard of programs, balanced by size, for example '2/5'"
+    )
+    private String shard;
+
     /**
      * Output directoty. If not specified, defaults to a temporary directory.
      */
@@ -104,97 +150,668 @@ public final class Polystat implements Callable<Integer> {
     )
     private boolean sarif;
 
+    /**
+     * File to write the report to. If not specified, the report goes
+     * to standard output.
+     */
+    @CommandLine.Option(
+        names = "--output",
+        description = "The file to write the report to, instead of the console"
+    )
+    private Path output;
+
+    /**
+     * How many analysis tasks may run at the same time.
+     */
+    @CommandLine.Option(
+        names = "--threads",
+        defaultValue = "1",
+        description = "How many analysis tasks to run in parallel (default: ${DEFAULT-VALUE})"
+    )
+    private int threads;
+
+    /**
+     * Seconds every analyzer is given for one object.
+     */
+    @CommandLine.Option(
+        names = "--timeout",
+        defaultValue = "0",
+        description = "Seconds an analyzer may spend on one object, zero for no limit"
+            + " (default: ${DEFAULT-VALUE})"
+    )
+    private long timeout;
+
+    /**
+     * Seconds given for one object to specific analyzers.
+     */
+    @CommandLine.Option(
+        names = "--timeout-for",
+        description = "Seconds a specific analyzer may spend on one object, for example AnOdin=60"
+    )
+    private Map<String, Long> limits = new HashMap<>(0);
+
+    /**
+     * Kind of the thread pool to run analysis tasks on.
+     */
+    @CommandLine.Option(
+        names = "--executor",
+        defaultValue = "FORKJOIN",
+        description = "The thread pool to use, one of: ${COMPLETION-CANDIDATES}"
+    )
+    private Scheduler.Kind executor;
+
+    /**
+     * Budget of the in-memory XMIR cache, in megabytes of XMIR files.
+     */
+    @CommandLine.Option(
+        names = "--xmir-cache",
+        defaultValue = "64",
+        description = "Megabytes of XMIR files, by their size on disk, to keep parsed"
+            + " in memory (default: ${DEFAULT-VALUE})"
+    )
+    private long budget;
+
+    /**
+     * When compiled XMIR is saved to the temp directory.
+     */
+    @CommandLine.Option(
+        names = "--xmir-persist",
+        defaultValue = "SYNC",
+        description = "When to save compiled XMIR to the temp directory, one of:"
+            + " ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})"
+    )
+    private Program.Persist persist;
+
+    /**
+     * Format of XMIR saved to the temp directory.
+     */
+    @CommandLine.Option(
+        names = "--xmir-format",
+        defaultValue = "XML",
+        description = "Save XMIR also in binary, which loads faster, one of:"
+            + " ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})"
+    )
+    private Program.Format format;
+
+    /**
+     * Read only requested objects from saved XMIR, instead of whole files.
+     */
+    @CommandLine.Option(
+        names = "--xmir-lazy",
+        description = "Read only requested objects from saved XMIR, not whole files,"
+            + " which takes less memory, but reads files more often"
+    )
+    private boolean lazy;
+
+    /**
+     * Keep watching the sources and analyze them again when they change.
+     */
+    @CommandLine.Option(
+        names = "--watch",
+        description = "Watch the sources and analyze changed ones again, until stopped"
+    )
+    private boolean watch;
+
+    /**
+     * File to save timings of stages and hit rates of caches to.
+     */
+    @CommandLine.Option(
+        names = "--metrics",
+        description = "Save timings of stages and hit rates of caches to this file,"
+            + " as JSON or, if it ends with '.prom', in Prometheus text format"
+    )
+    private Path metrics;
+
+    /**
+     * Where to get the XMIR cache of a scan from, given its budget in bytes.
+     */
+    private final Func<Long, XmirCache> caches;
+
+    /**
+     * Analyzers, which live longer than the scan.
+     */
+    private final Analyzers warm;
+
+    /**
+     * Where to keep temp files of a scan of the sources, if no temp
+     * directory is given.
+     */
+    private final UncheckedFunc<Path, Path> temps;
+
+    /**
+     * Where to read the EO code from, if no sources directory is given.
+     */
+    private final InputStream stdin;
+
+    /**
+     * Where to print the report, if no output file is given.
+     */
+    private final OutputStream stdout;
+
+    /**
+     * Timings of stages and hit rates of caches, which are recorded
+     * only if they are saved.
+     */
+    private Metrics stats;
+
+    /**
+     * How many results of the scan are failures.
+     */
+    private AtomicInteger failures;
+
+    /**
+     * Ctor.
+     */
+    public Polystat() {
+        this(new Analyzers());
+    }
+
+    /**
+     * Ctor.
+     * @param analyzers Analyzers, which live longer than the scan
+     */
+    Polystat(final Analyzers analyzers) {
+        this(XmirCache::new, analyzers, System.in, System.out);
+    }
+
+    /**
+     * Ctor.
+     * @param caches Where to get the XMIR cache of a scan from
+     * @param analyzers Analyzers, which live longer than the scan
+     * @param stdin Where to read the EO code from, if no sources are given
+     * @param stdout Where to print the report, if no output file is given
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Polystat(final Func<Long, XmirCache> caches, final Analyzers analyzers,
+        final InputStream stdin, final OutputStream stdout) {
+        this(
+            caches, src -> Files.createTempDirectory("polystat-temp"),
+            analyzers, stdin, stdout
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param caches Where to get the XMIR cache of a scan from
+     * @param temps Where to keep temp files of a scan of the sources,
+     *  if no temp directory is given
+     * @param analyzers Analyzers, which live longer than the scan
+     * @param stdin Where to read the EO code from, if no sources are given
+     * @param stdout Where to print the report, if no output file is given
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Polystat(final Func<Long, XmirCache> caches, final Func<Path, Path> temps,
+        final Analyzers analyzers, final InputStream stdin, final OutputStream stdout) {
+        this.caches = caches;
+        this.temps = new UncheckedFunc<>(temps);
+        this.warm = analyzers;
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.stats = new Metrics(false);
+        this.failures = new AtomicInteger();
+    }
+
     /**
      * Main entrance for Java command line.
+     *
+     * <p>Options from the ".polystat" file go before the arguments, or,
+     * if it's the client, right after "client", so that the client
+     * forwards them to the daemon together with its own arguments.
+     * Only the client exits with the status of the command, which is
+     * not zero if the request fails or any analyzer fails in it.</p>
      * @param cmdargs The args from the command line.
      */
     @SuppressWarnings({"PMD.DoNotCallSystemExit", "PMD.AvoidCatchingGenericException"})
-    public static void main(final String... cmdargs) {
-        final List<String> confargs = new ListOf<>(
-            new Config(Paths.get(".polystat"))
-        );
-        confargs.addAll(new ListOf<>(cmdargs));
+    public static void main(final String... cmdargs) throws Exception {
+        final List<String> confargs = new ArrayList<>(cmdargs.length);
+        final boolean client = cmdargs.length > 0 && "client".equals(cmdargs[0]);
+        int start = 0;
+        if (client) {
+            confargs.add(cmdargs[0]);
+            start = 1;
+        }
+        confargs.addAll(new ListOf<>(new Config(Paths.get(".polystat"))));
+        confargs.addAll(Arrays.asList(cmdargs).subList(start, cmdargs.length));
         final String[] args = confargs.toArray(new String[0]);
-        new CommandLine(new Polystat()).execute(args);
+        final int code;
+        try (Analyzers analyzers = new Analyzers()) {
+            code = new CommandLine(new Polystat(analyzers))
+                .addSubcommand("daemon", new Daemon(analyzers))
+                .addSubcommand("client", new Client())
+                .addSubcommand("merge", new Merge())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .execute(args);
+        }
+        if (client && code != 0) {
+            System.exit(code);
+        }
     }
 
     @Override
     public Integer call() throws Exception {
-        final Path tempdir;
-        if (this.temp == null) {
-            tempdir = Files.createTempDirectory("polystat-temp");
-        } else {
-            tempdir = this.temp;
-        }
-        final Path sources;
+        this.stats = new Metrics(this.metrics != null);
+        this.failures = new AtomicInteger();
         if (this.source == null) {
-            sources = readCodeFromStdin();
+            final Path sources = this.readCodeFromStdin();
+            try {
+                if (this.temp == null) {
+                    final Path tempdir = Files.createTempDirectory("polystat-temp");
+                    try {
+                        this.run(sources, tempdir);
+                    } finally {
+                        Polystat.delete(tempdir);
+                    }
+                } else {
+                    this.run(sources, this.temp);
+                }
+            } finally {
+                Polystat.delete(sources);
+            }
+        } else if (this.temp == null) {
+            this.run(this.source, this.temps.apply(this.source));
         } else {
-            sources = this.source;
+            this.run(this.source, this.temp);
         }
+        return 0;
+    }
+
+    /**
+     * How many results of the last scan are failures.
+     * @return The number of failures
+     */
+    int failures() {
+        return this.failures.get();
+    }
+
+    /**
+     * Scan the sources.
+     * @param sources The directory with EO files
+     * @param tempdir The directory with XMIR and other temp files
+     * @throws Exception If fails
+     */
+    private void run(final Path sources, final Path tempdir) throws Exception {
         if (sources.toFile().list() == null) {
             throw new IOException(
                 String.format("Provided directory doesn't have any files: %s", sources)
             );
         }
-        final Iterable<Result> errors =
-            this.scan(sources, tempdir);
-        final Supplier<String> out;
+        final XmirCache cache = new UncheckedFunc<>(this.caches).apply(this.budget << 20);
+        final AtomicReference<SortedMap<String, Path>> programs = new AtomicReference<>(
+            new Sources(sources).programs()
+        );
+        final Scalar<Func<String, XML>> scans = () -> new Program(
+            sources, tempdir, cache, programs::get, this.stats,
+            this.persist, this.format, this.lazy
+        );
+        final Hierarchy hierarchy = this.warm.hierarchy();
+        try (ResultCache results = new ResultCache(tempdir)) {
+            this.stats.cache("xmir", cache::hits, cache::misses);
+            this.stats.cache("results", results::hits, results::misses);
+            final Map<Class<? extends Analysis>, Analysis> analyzers =
+                this.warm.cached(results, this.stats);
+            if (this.watch) {
+                this.watch(analyzers, hierarchy, sources, tempdir, programs, scans);
+            } else {
+                final Func<String, XML> xmir = scans.value();
+                final List<String> selected = this.selected(sources, programs.get());
+                this.write(sink -> this.scan(analyzers, xmir, selected, sink), tempdir);
+            }
+            Logger.debug(this, "%s; %s; %s", cache, results, this.warm);
+        }
+    }
+
+    /**
+     * Analyze all programs, then re-analyze changed programs and their
+     * decorators, until interrupted. Every time the full report is written,
+     * with the latest results of every program. Every scan gets its own
+     * {@link Program}, so that fingerprints of sources, which it memoizes,
+     * are calculated again.
+     * @param analyzers Analyzers to run, by types to report on behalf of
+     * @param hierarchy Hierarchies of objects
+     * @param src Path with sources
+     * @param tempdir Path with temp files
+     * @param programs Relative paths of sources by names of programs,
+     *  to be updated when sources are created or deleted
+     * @param scans Where to get a function to retrieve XMIR by locator
+     *  for the next scan
+     * @throws IOException If fails
+     * @throws InterruptedException If interrupted while waiting for changes
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void watch(final Map<Class<? extends Analysis>, Analysis> analyzers,
+        final Hierarchy hierarchy, final Path src, final Path tempdir,
+        final AtomicReference<SortedMap<String, Path>> programs,
+        final Scalar<Func<String, XML>> scans) throws IOException, InterruptedException {
+        final Map<Class<? extends Analysis>, Map<String, List<Result>>> latest =
+            new LinkedHashMap<>(analyzers.size());
+        for (final Class<? extends Analysis> type : analyzers.keySet()) {
+            latest.put(type, new ConcurrentHashMap<>(0));
+        }
+        try (Watch changes = new Watch(src)) {
+            List<String> selected = this.selected(src, programs.get());
+            this.remember(analyzers, new Unchecked<>(scans).value(), selected, latest);
+            this.write(this.replay(selected, latest), tempdir);
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<String> keys = changes.changes();
+                final SortedMap<String, Path> before = programs.get();
+                programs.set(new Sources(src).programs());
+                final Set<String> changed = new TreeSet<>();
+                for (final Map<String, Path> all : new ListOf<>(before, programs.get())) {
+                    for (final Map.Entry<String, Path> ent : all.entrySet()) {
+                        if (keys.contains(Sources.key(ent.getValue()))) {
+                            changed.add(ent.getKey());
+                        }
+                    }
+                }
+                final Func<String, XML> xmir = new Unchecked<>(scans).value();
+                selected = this.selected(src, programs.get());
+                for (final Map<String, List<Result>> found : latest.values()) {
+                    found.keySet().retainAll(selected);
+                }
+                final List<String> affected = new ArrayList<>(changed.size());
+                for (final String name : selected) {
+                    if (changed.contains(name)
+                        || Polystat.decorates(hierarchy, xmir, name, changed)) {
+                        affected.add(name);
+                    }
+                }
+                Logger.info(
+                    this, "Changed: %[list]s, analyzing again: %[list]s",
+                    changed, affected
+                );
+                this.remember(analyzers, xmir, affected, latest);
+                this.write(this.replay(selected, latest), tempdir);
+            }
+        }
+    }
+
+    /**
+     * Write the report to the console or to the file.
+     * @param scan What pushes results into the report
+     * @param tempdir Path with temp files
+     * @throws IOException If fails
+     * @throws InterruptedException If interrupted while waiting for tasks
+     */
+    private void write(final Polystat.Scan scan, final Path tempdir)
+        throws IOException, InterruptedException {
+        if (this.output == null) {
+            final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(this.stdout, StandardCharsets.UTF_8)
+            );
+            this.report(scan, writer, tempdir);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(this.output, StandardCharsets.UTF_8)) {
+                this.report(scan, writer, tempdir);
+            }
+        }
+        if (this.metrics != null) {
+            this.stats.save(this.metrics);
+        }
+    }
+
+    /**
+     * Write the report, while results arrive, recording
+     * the time spent on rendering.
+     * @param scan What pushes results into the report
+     * @param writer Where to write
+     * @param tempdir Path with temp files
+     * @throws IOException If fails
+     * @throws InterruptedException If interrupted while waiting for tasks
+     */
+    private void report(final Polystat.Scan scan, final Writer writer, final Path tempdir)
+        throws IOException, InterruptedException {
         if (this.sarif) {
-            out = new AsSarif(errors);
+            try (SarifSink sink = new SarifSink(writer, tempdir)) {
+                scan.into(this.timed(sink));
+            }
         } else {
-            out = new AsConsole(errors);
+            try (ConsoleSink sink = new ConsoleSink(writer)) {
+                scan.into(this.timed(sink));
+            }
         }
-        Logger.info(this, "%s\n", out.get());
-        return 0;
+        writer.write(System.lineSeparator());
     }
 
     /**
-     * Scan.
-     * @param src Path with sources
-     * @param tmp Path with temp files
-     * @return Errors
+     * Sink, which records the time spent on every result
+     * and counts failures.
+     * @param sink The sink
+     * @return Timed sink
      */
-    @SuppressWarnings("PMD.AvoidCatchingGenericException")
-    private Iterable<Result> scan(final Path src, final Path tmp) {
-        final Func<String, XML> xmir = new Program(src, tmp);
-        final Collection<Result> errors = new ArrayList<>(Polystat.ALL.length);
-        final String extension = ".eo";
-        for (final Analysis analysis : Polystat.ALL) {
-            try {
-                for (final String file : src.toFile().list()) {
-                    if (file.endsWith(extension)) {
-                        final String filename = file.split(extension)[0];
-                        errors.addAll(
-                            new ListOf<>(
-                                analysis.errors(xmir, String.format("\\Phi.%s", filename))
-                            )
-                        );
+    private Sink timed(final Sink sink) {
+        return res -> {
+            if (res.failure().isPresent()) {
+                this.failures.incrementAndGet();
+            }
+            final Events.Outcome<Result> event = Events.render();
+            final long start = System.nanoTime();
+            sink.accept(res);
+            this.stats.record("render", start);
+            event.finish(res);
+        };
+    }
+
+    /**
+     * Scan with analyzers that may report wanted rules, and push
+     * results of wanted rules only.
+     * @param analyzers Analyzers to run, by types to report on behalf of
+     * @param xmir Function to retrieve XMIR by locator
+     * @param programs Names of programs to analyze
+     * @param sink Where to push results
+     * @throws IOException If the sink fails
+     * @throws InterruptedException If interrupted while waiting for tasks
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void scan(final Map<Class<? extends Analysis>, Analysis> analyzers,
+        final Func<String, XML> xmir, final List<String> programs, final Sink sink)
+        throws IOException, InterruptedException {
+        final Collection<Task> tasks = new ArrayList<>(analyzers.size() * programs.size());
+        for (final List<Task> list : this.tasks(analyzers, xmir, programs).values()) {
+            tasks.addAll(list);
+        }
+        new Scheduler(this.threads, this.executor).run(tasks, this.filtered(sink));
+    }
+
+    /**
+     * Scan with analyzers that may report wanted rules, and keep
+     * the results of every program, instead of the results they had before.
+     * @param analyzers Analyzers to run, by types to report on behalf of
+     * @param xmir Function to retrieve XMIR by locator
+     * @param programs Names of programs to analyze
+     * @param latest Results, by types of analyzers and names of programs
+     * @throws IOException If fails
+     * @throws InterruptedException If interrupted while waiting for tasks
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void remember(final Map<Class<? extends Analysis>, Analysis> analyzers,
+        final Func<String, XML> xmir, final List<String> programs,
+        final Map<Class<? extends Analysis>, Map<String, List<Result>>> latest)
+        throws IOException, InterruptedException {
+        final Collection<Callable<Iterable<Result>>> tasks = new ArrayList<>(
+            analyzers.size() * programs.size()
+        );
+        for (final Map.Entry<Class<? extends Analysis>, List<Task>> ent
+            : this.tasks(analyzers, xmir, programs).entrySet()) {
+            final Map<String, List<Result>> found = latest.get(ent.getKey());
+            for (final Task task : ent.getValue()) {
+                tasks.add(
+                    () -> {
+                        for (final Map.Entry<String, List<Result>> res
+                            : task.results().entrySet()) {
+                            found.put(
+                                res.getKey().substring(res.getKey().indexOf('.') + 1),
+                                res.getValue()
+                            );
+                        }
+                        return Collections.emptyList();
+                    }
+                );
+            }
+        }
+        new Scheduler(this.threads, this.executor).run(tasks, res -> { });
+    }
+
+    /**
+     * Push the latest results of programs, which are still there,
+     * in the same order as a scan does.
+     * @param programs Names of programs
+     * @param latest Results, by types of analyzers and names of programs
+     * @return Scan, which pushes them
+     */
+    private Polystat.Scan replay(final List<String> programs,
+        final Map<Class<? extends Analysis>, Map<String, List<Result>>> latest) {
+        return sink -> {
+            final Sink filtered = this.filtered(sink);
+            for (final Map<String, List<Result>> found : latest.values()) {
+                for (final String program : programs) {
+                    for (final Result res
+                        : found.getOrDefault(program, Collections.emptyList())) {
+                        filtered.accept(res);
                     }
                 }
-            // @checkstyle IllegalCatchCheck (1 line)
-            } catch (final Exception ex) {
-                final Result.Failed result = new Result.Failed(
-                    analysis.getClass(), ex, analysis.getClass().getName()
+            }
+        };
+    }
+
+    /**
+     * Tasks of analyzers that may report wanted rules. Objects are given
+     * to an analyzer in batches of its preferred size, but not bigger
+     * than it takes to keep all threads busy.
+     * @param analyzers Analyzers to run, by types to report on behalf of
+     * @param xmir Function to retrieve XMIR by locator
+     * @param programs Names of programs to analyze
+     * @return Tasks, by types of analyzers
+     */
+    private Map<Class<? extends Analysis>, List<Task>> tasks(
+        final Map<Class<? extends Analysis>, Analysis> analyzers,
+        final Func<String, XML> xmir, final List<String> programs) {
+        final Predicate<String> wanted = this.wanted();
+        final Map<Class<? extends Analysis>, List<Task>> tasks =
+            new LinkedHashMap<>(analyzers.size());
+        for (final Map.Entry<Class<? extends Analysis>, Analysis> ent : analyzers.entrySet()) {
+            final Set<String> rules = ent.getValue().rules();
+            if (!rules.isEmpty() && rules.stream().noneMatch(wanted)) {
+                Logger.debug(
+                    this, "%s skipped, none of its rules is wanted: %[list]s",
+                    ent.getKey().getSimpleName(), rules
+                );
+            } else {
+                final long millis = TimeUnit.SECONDS.toMillis(
+                    this.limits.getOrDefault(ent.getKey().getSimpleName(), this.timeout)
                 );
-                errors.add(result);
+                final int batch = Math.max(
+                    1,
+                    Math.min(
+                        ent.getValue().batch(),
+                        (programs.size() + this.threads - 1) / this.threads
+                    )
+                );
+                final List<Task> list = new ArrayList<>(programs.size() / batch + 1);
+                for (int idx = 0; idx < programs.size(); idx += batch) {
+                    final List<String> locators = new ArrayList<>(batch);
+                    for (final String program
+                        : programs.subList(idx, Math.min(idx + batch, programs.size()))) {
+                        locators.add(String.format("\\Phi.%s", program));
+                    }
+                    list.add(
+                        new Task(
+                            ent.getKey(), ent.getValue(), xmir, locators, millis, this.stats
+                        )
+                    );
+                }
+                tasks.put(ent.getKey(), list);
             }
         }
-        final Collection<Result> filtered;
+        return tasks;
+    }
+
+    /**
+     * Sink, which pushes results of wanted rules only, according to --include
+     * or --exclude.
+     * @param sink The sink
+     * @return Filtered sink
+     */
+    private Sink filtered(final Sink sink) {
+        final Sink filtered;
         if (this.inex == null) {
-            filtered = errors;
-        } else if (this.inex.exclude == null) {
-            filtered = errors.stream().filter(
-                e -> this.inex.includeList().stream().anyMatch(rule -> e.ruleId().equals(rule))
-            ).collect(Collectors.toList());
+            filtered = sink;
         } else {
-            filtered = errors.stream().filter(
-                e -> this.inex.excludeList().stream().anyMatch(rule -> !e.ruleId().equals(rule))
-            ).collect(Collectors.toList());
+            final Predicate<String> wanted = this.wanted();
+            filtered = res -> {
+                if (wanted.test(res.ruleId())) {
+                    sink.accept(res);
+                }
+            };
         }
         return filtered;
     }
 
+    /**
+     * Which rules are wanted in the report, according to --include
+     * or --exclude.
+     * @return Predicate of rule ids
+     */
+    private Predicate<String> wanted() {
+        final Predicate<String> wanted;
+        if (this.inex == null) {
+            wanted = rule -> true;
+        } else if (this.inex.exclude == null) {
+            final Set<String> included = new HashSet<>(this.inex.includeList());
+            wanted = included::contains;
+        } else {
+            final Set<String> excluded = new HashSet<>(this.inex.excludeList());
+            wanted = rule -> !excluded.contains(rule);
+        }
+        return wanted;
+    }
+
+    /**
+     * Names of programs to analyze, which match the globs and belong
+     * to the shard. The cost of a program is the size of its source.
+     * @param src Path with sources
+     * @param programs Relative paths of sources by names of programs
+     * @return Names of programs
+     * @throws IOException If fails to read sizes of sources
+     */
+    private List<String> selected(final Path src, final SortedMap<String, Path> programs)
+        throws IOException {
+        final Predicate<Path> globs = new Sources.Globs(this.includes, this.excludes);
+        final Map<String, Long> costs = new TreeMap<>();
+        for (final Map.Entry<String, Path> ent : programs.entrySet()) {
+            if (globs.test(ent.getValue())) {
+                costs.put(ent.getKey(), Files.size(src.resolve(ent.getValue())));
+            }
+        }
+        return new Shard(this.shard).programs(costs);
+    }
+
+    /**
+     * Does the program decorate, directly or transitively, any of the
+     * changed programs? If its hierarchy can't be built, it is analyzed
+     * again, to report the failure.
+     * @param hierarchy Hierarchies of objects
+     * @param xmir Function to retrieve XMIR by locator
+     * @param name Name of the program
+     * @param changed Names of changed programs
+     * @return TRUE if it does
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private static boolean decorates(final Hierarchy hierarchy,
+        final Func<String, XML> xmir, final String name, final Set<String> changed) {
+        boolean found;
+        try {
+            found = hierarchy.locators(xmir, String.format("\\Phi.%s", name))
+                .stream()
+                .anyMatch(locator -> changed.contains(locator.substring(locator.indexOf('.') + 1)));
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            found = true;
+        }
+        return found;
+    }
+
     /**
      * Reads the EO code from standard input,
      * creates a temporary directory and
@@ -202,20 +819,47 @@ public final class Polystat implements Callable<Integer> {
      * @return Path object of "{tmpdir}/test.eo" files.
      * @throws Exception When IO fails.
      */
-    private static Path readCodeFromStdin() throws Exception {
+    private Path readCodeFromStdin() throws Exception {
         final Path tmpdir = Files.createTempDirectory("polystat_stdin");
         final String name = "test.eo";
         final Path fullpath = tmpdir.resolve(Paths.get(name));
         final Path tmpfile = Files.createFile(fullpath);
         new LengthOf(
             new TeeInput(
-                new Stdin(),
+                new InputOf(this.stdin),
                 new OutputTo(tmpfile)
             )
         ).value();
         return tmpdir;
     }
 
+    /**
+     * Delete the directory with everything in it, as far as possible.
+     * @param dir The directory
+     */
+    private static void delete(final Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (final IOException ex) {
+            Logger.warn(Polystat.class, "Can't delete %s: %[exception]s", dir, ex);
+        }
+    }
+
+    /**
+     * What pushes results into the report.
+     *
+     * @since 1.0
+     */
+    private interface Scan {
+        /**
+         * Push results.
+         * @param sink Where to push them
+         * @throws IOException If the sink fails
+         * @throws InterruptedException If interrupted while waiting for tasks
+         */
+        void into(Sink sink) throws IOException, InterruptedException;
+    }
+
     /**
      * Version.
      * @since 1.0
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.cactoos.Func;
+import org.cactoos.Scalar;
+
+/**
+ * Instances of a library, which is not safe to use from a few threads
+ * at once, but is worth reusing.
+ *
+ * <p>A job borrows an idle instance, or a new one if all of them are busy,
+ * and gives it back when it is done. So there are never more instances
+ * than jobs running at the same time, and each of them is used by one
+ * thread at a time. If a job fails, or its thread is interrupted,
+ * for example because the job is out of time, its instance is dropped,
+ * because it may be left broken. Instances that are {@link AutoCloseable}
+ * are closed when they are dropped, or together with the pool.</p>
+ *
+ * @param <T> Type of instances
+ * @since 1.0
+ */
+final class Pool<T> implements AutoCloseable {
+
+    /**
+     * Where to get a new instance from.
+     */
+    private final Scalar<T> factory;
+
+    /**
+     * Instances not used right now.
+     */
+    private final Queue<T> idle;
+
+    /**
+     * How many instances were made.
+     */
+    private final AtomicInteger made;
+
+    /**
+     * Ctor.
+     * @param factory Where to get a new instance from
+     */
+    Pool(final Scalar<T> factory) {
+        this.factory = factory;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.made = new AtomicInteger();
+    }
+
+    /**
+     * Run the job with an instance nobody else uses.
+     * @param job The job
+     * @param <R> Type of the outcome
+     * @return Outcome of the job
+     * @throws Exception If the job fails
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public <R> R apply(final Func<T, R> job) throws Exception {
+        T item = this.idle.poll();
+        if (item == null) {
+            item = this.factory.value();
+            this.made.incrementAndGet();
+        }
+        final R result;
+        try {
+            result = job.apply(item);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            Pool.drop(item, ex);
+            throw ex;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            Pool.close(item);
+        } else {
+            this.idle.offer(item);
+        }
+        return result;
+    }
+
+    /**
+     * How many instances were made so far.
+     * @return The number of instances
+     */
+    public int made() {
+        return this.made.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (T item = this.idle.poll(); item != null; item = this.idle.poll()) {
+            Pool.close(item);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%d instance(s) made, %d idle", this.made.get(), this.idle.size()
+        );
+    }
+
+    /**
+     * Close the instance of a failed job, if it can be closed. If it
+     * fails to close, the failure is added to the failure of the job.
+     * @param item The instance
+     * @param failure Why the job failed
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private static void drop(final Object item, final Exception failure) {
+        try {
+            Pool.close(item);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Close the instance, if it can be closed.
+     * @param item The instance
+     * @throws Exception If fails to close
+     */
+    private static void close(final Object item) throws Exception {
+        if (item instanceof AutoCloseable) {
+            ((AutoCloseable) item).close();
+        }
+    }
+}
@@ -24,13 +24,25 @@
 
 package org.polystat;
 
+import com.jcabi.log.Logger;
 import com.jcabi.xml.XML;
 import com.jcabi.xml.XMLDocument;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.cactoos.Func;
+import org.cactoos.Scalar;
 import org.cactoos.io.InputOf;
 import org.cactoos.io.OutputTo;
+import org.cactoos.scalar.Sticky;
 import org.eolang.parser.Spy;
 import org.eolang.parser.Syntax;
 import org.eolang.parser.Xsline;
@@ -44,6 +56,21 @@ import org.eolang.parser.Xsline;
  */
 public final class Program implements Func<String, XML> {
 
+    /**
+     * Default budget of the XMIR cache, in bytes.
+     */
+    private static final long BUDGET = 64L << 20;
+
+    /**
+     * Compilations in progress, shared by all programs of the process.
+     */
+    private static final SingleFlight FLIGHTS = new SingleFlight(64);
+
+    /**
+     * Thread, which saves XMIR behind, shared by all programs of the process.
+     */
+    private static final ExecutorService WRITER = Program.writer();
+
     /**
      * The directory with EO files.
      */
@@ -54,44 +81,461 @@ public final class Program implements Func<String, XML> {
      */
     private final Path temp;
 
+    /**
+     * Parsed XMIR documents.
+     */
+    private final XmirCache cache;
+
+    /**
+     * Fingerprints of compiled sources.
+     */
+    private final Fingerprints prints;
+
+    /**
+     * Relative paths of sources, by fully qualified names of programs.
+     */
+    private final Scalar<Map<String, Path>> programs;
+
+    /**
+     * Timings of stages.
+     */
+    private final Metrics metrics;
+
+    /**
+     * When compiled XMIR is saved.
+     */
+    private final Program.Persist persist;
+
+    /**
+     * Format of saved XMIR.
+     */
+    private final Program.Format format;
+
+    /**
+     * Read only requested objects from saved XMIR, instead of whole files.
+     */
+    private final boolean lazy;
+
     /**
      * Ctor.
      * @param src The dir with .eo sources
      * @param tmp Temp dir with .xml files
      */
     public Program(final Path src, final Path tmp) {
+        this(src, tmp, new XmirCache(Program.BUDGET));
+    }
+
+    /**
+     * Ctor.
+     * @param src The dir with .eo sources
+     * @param tmp Temp dir with .xml files
+     * @param xmirs Parsed XMIR documents, possibly shared with other programs
+     */
+    Program(final Path src, final Path tmp, final XmirCache xmirs) {
+        this(src, tmp, xmirs, new Sticky<>(() -> new Sources(src).programs()));
+    }
+
+    /**
+     * Ctor.
+     * @param src The dir with .eo sources
+     * @param tmp Temp dir with .xml files
+     * @param xmirs Parsed XMIR documents, possibly shared with other programs
+     * @param programs Relative paths of sources, by names of programs
+     */
+    Program(final Path src, final Path tmp, final XmirCache xmirs,
+        final Scalar<Map<String, Path>> programs) {
+        this(
+            src, tmp, xmirs, programs, new Metrics(false),
+            Program.Persist.SYNC, Program.Format.XML
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param src The dir with .eo sources
+     * @param tmp Temp dir with .xml files
+     * @param xmirs Parsed XMIR documents, possibly shared with other programs
+     * @param programs Relative paths of sources, by names of programs
+     * @param metrics Timings of parsing, passing, loading and locating
+     * @param persist When compiled XMIR is saved
+     * @param format Format of saved XMIR
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Program(final Path src, final Path tmp, final XmirCache xmirs,
+        final Scalar<Map<String, Path>> programs, final Metrics metrics,
+        final Program.Persist persist, final Program.Format format) {
+        this(src, tmp, xmirs, programs, metrics, persist, format, false);
+    }
+
+    /**
+     * Ctor.
+     * @param src The dir with .eo sources
+     * @param tmp Temp dir with .xml files
+     * @param xmirs Parsed XMIR documents, possibly shared with other programs
+     * @param programs Relative paths of sources, by names of programs
+     * @param metrics Timings of parsing, passing, loading and locating
+     * @param persist When compiled XMIR is saved
+     * @param format Format of saved XMIR
+     * @param lazy Read only requested objects from saved XMIR, see {@link LazyXmir}
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Program(final Path src, final Path tmp, final XmirCache xmirs,
+        final Scalar<Map<String, Path>> programs, final Metrics metrics,
+        final Program.Persist persist, final Program.Format format,
+        final boolean lazy) {
+        this.lazy = lazy;
+        this.metrics = metrics;
+        this.persist = persist;
+        this.format = format;
         this.sources = src;
         this.temp = tmp;
+        this.cache = xmirs;
+        this.prints = new Fingerprints(tmp);
+        this.programs = programs;
     }
 
+    /**
+     * Find the object.
+     *
+     * <p>The locator starts with the fully qualified name of the program,
+     * for example {@code \Phi.sandbox.derived.g}, and the longest name
+     * of a known program wins. If there is no such program, the first
+     * part of the locator is the name of a source in the root directory,
+     * for example {@code \Phi.derived.g}.</p>
+     * @param locator Locator of the object
+     * @return XMIR of the object
+     * @throws Exception If fails
+     */
     @Override
     public XML apply(final String locator) throws Exception {
-        final String[] parts = locator.split("\\.");
-        final String name = parts[1];
-        final Path xml = this.temp.resolve(String.format("%s.xml", name));
-        final Path src = this.sources.resolve(String.format("%s.eo", name));
-        if (
-            !xml.toFile().exists()
-                || xml.toFile().lastModified() < src.toFile().lastModified()
-        ) {
-            new Syntax(
-                name,
-                new InputOf(src),
-                new OutputTo(xml)
-            ).parse();
-            new Xsline(
-                new XMLDocument(xml),
-                new OutputTo(xml),
-                new Spy.Verbose()
-            ).pass();
+        final String path = locator.substring(locator.indexOf('.') + 1);
+        final Map<String, Path> all = this.programs.value();
+        String program = path;
+        while (!all.containsKey(program) && program.indexOf('.') > 0) {
+            program = program.substring(0, program.lastIndexOf('.'));
         }
-        XML obj = new XMLDocument(xml).nodes("/program/objects").get(0);
-        for (int idx = 1; idx < parts.length; ++idx) {
-            final List<XML> objs = obj.nodes(
-                String.format("o[@name='%s']", parts[idx])
+        final Path rel;
+        final String object;
+        if (all.containsKey(program)) {
+            rel = all.get(program);
+            object = path.substring(program.lastIndexOf('.') + 1);
+        } else {
+            rel = this.sources.getFileSystem().getPath(
+                String.format("%s.eo", path.split("\\.")[0])
             );
-            obj = objs.get(0);
+            object = path;
         }
-        return obj;
+        final String key = Sources.key(rel);
+        final Path xml = this.temp.resolve(String.format("%s.xml", key));
+        final Path src = this.sources.resolve(rel);
+        final String print = this.prints.of(src);
+        final Optional<Index> compiled = this.cache.compiled(xml, print);
+        final XML found;
+        if (compiled.isPresent()) {
+            found = this.locate(compiled.get(), xml, locator, object);
+        } else if (this.fresh(key, print, xml)) {
+            if (this.lazy) {
+                found = this.read(xml, object);
+            } else {
+                found = this.locate(this.load(xml), xml, locator, object);
+            }
+        } else {
+            found = this.locate(
+                Program.FLIGHTS.run(
+                    xml.toAbsolutePath().normalize().toString(),
+                    () -> this.compile(key, print, src, xml)
+                ),
+                xml, locator, object
+            );
+        }
+        return found;
+    }
+
+    /**
+     * Find the object in the index.
+     * @param index Index of objects of XMIR
+     * @param xml Path of XMIR
+     * @param locator Locator of the object
+     * @param object Path of the object in XMIR
+     * @return XMIR of the object
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private XML locate(final Index index, final Path xml, final String locator,
+        final String object) {
+        final Events.Span event = Events.locate(xml.toString(), locator);
+        final long start = System.nanoTime();
+        final XML found = index.object(object);
+        this.metrics.record("locate", start);
+        event.finish();
+        return found;
+    }
+
+    /**
+     * Read only the object from saved XMIR, without building DOM
+     * of the whole file and without caching it.
+     * @param xml Path of XMIR
+     * @param object Path of the object in XMIR
+     * @return XMIR of the object
+     * @throws IOException If fails
+     */
+    private XML read(final Path xml, final String object) throws IOException {
+        final Events.Span event = Events.load(xml.toString());
+        final long start = System.nanoTime();
+        final XML found = new LazyXmir(xml).object(object);
+        this.metrics.record("load", start);
+        event.finish();
+        return found;
+    }
+
+    /**
+     * Is XMIR of the source up to date?
+     * @param name Key of the source
+     * @param print Fingerprint of the source
+     * @param xml Path of XMIR
+     * @return TRUE if it is
+     */
+    private boolean fresh(final String name, final String print, final Path xml) {
+        return Files.exists(xml) && this.prints.compiled(name, print);
+    }
+
+    /**
+     * Load XMIR from disk, or take it from the cache. Binary XMIR
+     * is preferred, if it's the format of this program and it exists.
+     * @param xml Path of XMIR
+     * @return Index of its objects
+     * @throws IOException If fails
+     */
+    private Index load(final Path xml) throws IOException {
+        Path file = xml;
+        if (this.format != Program.Format.XML) {
+            final Path bin = Program.binary(xml);
+            if (Files.exists(bin)) {
+                file = bin;
+            }
+        }
+        final Events.Span event = Events.load(file.toString());
+        final long start = System.nanoTime();
+        final Index index = this.cache.index(file);
+        this.metrics.record("load", start);
+        event.finish();
+        return index;
+    }
+
+    /**
+     * Compile the source into XMIR in memory, unless another thread
+     * or process has just done it, and save it as this program
+     * is configured to.
+     *
+     * <p>A {@link FileMutex} next to the XMIR keeps other threads and
+     * processes away, while the result is written into a temp file, which
+     * is atomically renamed at the end, so nobody ever sees half-written
+     * XMIR. XMIR, which is not saved yet, is pinned in the cache, so that
+     * it is not compiled again after it would have been evicted.</p>
+     * @param key Key of the source, its relative path without extension
+     * @param print Fingerprint of the source
+     * @param src Path of the source
+     * @param xml Path of XMIR
+     * @return Index of its objects
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private Index compile(final String key, final String print, final Path src,
+        final Path xml) throws IOException {
+        final Optional<Index> done = this.cache.compiled(xml, print);
+        final Index index;
+        if (done.isPresent()) {
+            index = done.get();
+        } else if (this.persist == Program.Persist.SYNC) {
+            index = new FileMutex(xml).run(
+                () -> {
+                    final Index saved;
+                    if (this.fresh(key, print, xml)) {
+                        saved = this.load(xml);
+                    } else {
+                        final byte[] xmir = this.xmir(key, src);
+                        this.save(key, print, xml, xmir);
+                        saved = this.cache.put(xml, print, xmir);
+                    }
+                    return saved;
+                }
+            );
+        } else {
+            final byte[] xmir = this.xmir(key, src);
+            index = this.cache.put(xml, print, xmir, true);
+            if (this.persist == Program.Persist.BEHIND) {
+                Program.WRITER.execute(() -> this.behind(key, print, xml, xmir));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Compile the source into XMIR, without touching the disk.
+     * @param key Key of the source, its relative path without extension
+     * @param src Path of the source
+     * @return XMIR
+     * @throws IOException If fails
+     */
+    private byte[] xmir(final String key, final Path src) throws IOException {
+        final Events.Span event = Events.compile(src.toString());
+        long start = System.nanoTime();
+        final ByteArrayOutputStream parsed = new ByteArrayOutputStream();
+        new Syntax(
+            key.substring(key.lastIndexOf('/') + 1),
+            new InputOf(src),
+            new OutputTo(parsed)
+        ).parse();
+        this.metrics.record("parse", start);
+        start = System.nanoTime();
+        final ByteArrayOutputStream passed = new ByteArrayOutputStream();
+        new Xsline(
+            new XMLDocument(parsed.toByteArray()),
+            new OutputTo(passed),
+            new Spy.Verbose()
+        ).pass();
+        this.metrics.record("xsline", start);
+        event.finish();
+        return passed.toByteArray();
+    }
+
+    /**
+     * Save XMIR, compiled in memory, while the main thread goes on,
+     * and unpin it in the cache. If it can't be saved, it stays pinned.
+     * @param key Key of the source, its relative path without extension
+     * @param print Fingerprint of the source
+     * @param xml Path of XMIR
+     * @param xmir XMIR
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void behind(final String key, final String print, final Path xml,
+        final byte[] xmir) {
+        try {
+            new FileMutex(xml).run(
+                () -> {
+                    this.save(key, print, xml, xmir);
+                    return xml;
+                }
+            );
+            this.cache.unpin(xml, print);
+        } catch (final IOException ex) {
+            Logger.warn(this, "Can't save XMIR to %s: %[exception]s", xml, ex);
+        }
+    }
+
+    /**
+     * Save XMIR and its fingerprint, while holding the lock.
+     * @param key Key of the source, its relative path without extension
+     * @param print Fingerprint of the source
+     * @param xml Path of XMIR
+     * @param xmir XMIR
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void save(final String key, final String print, final Path xml,
+        final byte[] xmir) throws IOException {
+        final Path bin = Program.binary(xml);
+        if (this.format == Program.Format.XML) {
+            Files.deleteIfExists(bin);
+        } else {
+            Program.write(
+                bin, BinaryXmir.encode(xmir, this.format == Program.Format.DEFLATED)
+            );
+        }
+        Program.write(xml, xmir);
+        this.prints.compile(key, print);
+    }
+
+    /**
+     * Write the file atomically, through a temp file.
+     * @param file The file
+     * @param content Its content
+     * @throws IOException If fails
+     */
+    private static void write(final Path file, final byte[] content) throws IOException {
+        final Path tmp = Files.createTempFile(
+            file.toAbsolutePath().getParent(), String.valueOf(file.getFileName()), ".tmp"
+        );
+        try {
+            Files.write(tmp, content);
+            Files.move(
+                tmp, file,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Path of binary XMIR next to XMIR.
+     * @param xml Path of XMIR
+     * @return Path of binary XMIR
+     */
+    private static Path binary(final Path xml) {
+        final String name = xml.getFileName().toString();
+        return xml.resolveSibling(
+            String.format(
+                "%s%s", name.substring(0, name.length() - ".xml".length()), BinaryXmir.EXTENSION
+            )
+        );
+    }
+
+    /**
+     * Thread, which saves XMIR behind, and stops soon when there is
+     * nothing to save, so it doesn't keep the JVM alive.
+     * @return Executor
+     */
+    private static ExecutorService writer() {
+        final ThreadPoolExecutor exec = new ThreadPoolExecutor(
+            1, 1, 100L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            job -> new Thread(job, "polystat-xmir-writer")
+        );
+        exec.allowCoreThreadTimeOut(true);
+        return exec;
+    }
+
+    /**
+     * Format of XMIR saved to the temp directory.
+     *
+     * @since 1.0
+     */
+    public enum Format {
+        /**
+         * Only XML.
+         */
+        XML,
+
+        /**
+         * XML and binary XMIR next to it, which is loaded instead.
+         */
+        BINARY,
+
+        /**
+         * XML and deflated binary XMIR next to it, which is loaded instead.
+         */
+        DEFLATED
+    }
+
+    /**
+     * When compiled XMIR is saved to the temp directory.
+     *
+     * @since 1.0
+     */
+    public enum Persist {
+        /**
+         * Right after compilation, before anyone reads it.
+         */
+        SYNC,
+
+        /**
+         * In a background thread, while it is read from memory.
+         */
+        BEHIND,
+
+        /**
+         * Never, it lives in memory only.
+         */
+        NONE
     }
 }
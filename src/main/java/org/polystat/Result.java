@@ -26,6 +26,7 @@ package org.polystat;
 
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Analysis result.
@@ -169,4 +170,62 @@ public interface Result extends Iterable<String> {
             return this.ruleid;
         }
     }
+
+    /**
+     * Analysis, which didn't finish in time and was interrupted.
+     *
+     * @since 1.0
+     */
+    final class TimedOut implements Result {
+
+        /**
+         * Type of Analysis.
+         */
+        private final Class<? extends Analysis> type;
+
+        /**
+         * What happened.
+         */
+        private final TimeoutException error;
+
+        /**
+         * Ctor.
+         * @param type Analysis.
+         * @param locator Locator of the object.
+         * @param millis Milliseconds the analysis was given.
+         */
+        public TimedOut(
+            final Class<? extends Analysis> type,
+            final String locator,
+            final long millis
+        ) {
+            this.type = type;
+            this.error = new TimeoutException(
+                String.format(
+                    "%s didn't finish analysis of %s in %dms",
+                    type.getSimpleName(), locator, millis
+                )
+            );
+        }
+
+        @Override
+        public Class<? extends Analysis> analysis() {
+            return this.type;
+        }
+
+        @Override
+        public Optional<? extends Throwable> failure() {
+            return Optional.of(this.error);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            throw new IllegalStateException(this.error);
+        }
+
+        @Override
+        public String ruleId() {
+            return this.type.getName();
+        }
+    }
 }
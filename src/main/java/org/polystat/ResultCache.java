@@ -0,0 +1,695 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Results of analysis, persisted in one append-only file
+ * in the temp directory.
+ *
+ * <p>The file starts with a magic number and then holds records:
+ * a slot and a key of {@link #KEY} bytes each, the length of the payload
+ * and the payload. The slot is a hash of the analysis and the locator
+ * of the object, and the key is a hash of its content.
+ * The payload is the number of results and then, for every result,
+ * its rule id, the number of errors and the errors, every string being
+ * prefixed with its length in bytes. The positions of records are read
+ * once, into memory, and payloads are read only when requested.
+ * A record that was written after that, by another process, is not seen.
+ * Records are appended and positions are read under {@link FileMutex},
+ * so a torn record at the end of the file may only be left by a crash,
+ * and it is cut off. A file of another format is never cut: it is moved
+ * aside, with its magic number in the name, and a new file is started.</p>
+ *
+ * <p>When an object changes, its new record takes its slot and the old
+ * one is dead: nobody will ever ask for it again. When there are many
+ * more records than slots, the file is compacted into a new one, with
+ * the last record of every slot, when it's read for the first time,
+ * or when the cache is closed. Another process notices that the file
+ * was replaced, when it appends a record, and reads positions again.</p>
+ *
+ * <p>Many threads look up results at once, through one channel, which
+ * is open until the cache is closed. Only appending a record and reading
+ * the positions keep other threads waiting.</p>
+ *
+ * <p>Only completed results are stored; the type of analysis they belong
+ * to is defined by the key.</p>
+ *
+ * @since 1.0
+ */
+final class ResultCache implements Closeable {
+
+    /**
+     * Name of the file in the temp directory.
+     */
+    static final String FILE = "results.bin";
+
+    /**
+     * Length of a key, in bytes.
+     */
+    static final int KEY = 32;
+
+    /**
+     * Magic number at the start of the file, which is also the version
+     * of the format.
+     */
+    private static final int MAGIC = 0x50535202;
+
+    /**
+     * How many dead records the file may have, before it is compacted.
+     */
+    private static final int GARBAGE = 1024;
+
+    /**
+     * The file.
+     */
+    private final Path file;
+
+    /**
+     * Lock of the file.
+     */
+    private final FileMutex mutex;
+
+    /**
+     * Positions of payload lengths in the file, by keys.
+     */
+    private final Map<ByteBuffer, Long> index;
+
+    /**
+     * Slots of records in the file.
+     */
+    private final Set<ByteBuffer> slots;
+
+    /**
+     * How many records are in the file.
+     */
+    private final AtomicLong records;
+
+    /**
+     * Lock, which is shared by readers of payloads, and exclusive
+     * for appending records and reading positions.
+     */
+    private final ReadWriteLock lock;
+
+    /**
+     * How many times results were found.
+     */
+    private final AtomicLong hit;
+
+    /**
+     * How many times results were not found.
+     */
+    private final AtomicLong miss;
+
+    /**
+     * Were the positions read from the file already?
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Channel to read payloads through, or NULL if there is no file yet.
+     */
+    private FileChannel reader;
+
+    /**
+     * Identity of the file the reader is open on, to notice that
+     * it was compacted into another file.
+     */
+    private Object identity;
+
+    /**
+     * Ctor.
+     * @param dir Temp directory
+     */
+    ResultCache(final Path dir) {
+        this.file = dir.resolve(ResultCache.FILE);
+        this.mutex = new FileMutex(this.file);
+        this.index = new ConcurrentHashMap<>(0);
+        this.slots = ConcurrentHashMap.newKeySet();
+        this.records = new AtomicLong();
+        this.lock = new ReentrantReadWriteLock();
+        this.hit = new AtomicLong();
+        this.miss = new AtomicLong();
+    }
+
+    /**
+     * Find results by key.
+     * @param key The key of {@link #KEY} bytes
+     * @param type Analysis the results belong to
+     * @return Results, if they were stored
+     * @throws IOException If fails to read
+     */
+    public Optional<List<Result>> get(final byte[] key,
+        final Class<? extends Analysis> type) throws IOException {
+        this.load();
+        final Long pos = this.index.get(ByteBuffer.wrap(key));
+        final Optional<List<Result>> found;
+        if (pos == null) {
+            this.miss.incrementAndGet();
+            found = Optional.empty();
+        } else {
+            this.hit.incrementAndGet();
+            found = Optional.of(ResultCache.decoded(this.payload(pos), type));
+        }
+        return found;
+    }
+
+    /**
+     * Store results by key, in the slot of the object.
+     * @param owner The analysis and the locator of the object
+     * @param key The key of {@link #KEY} bytes
+     * @param results Completed results
+     * @throws IOException If fails to write
+     */
+    public void put(final String owner, final byte[] key, final Iterable<Result> results)
+        throws IOException {
+        this.load();
+        final byte[] slot = ResultCache.slot(owner);
+        final byte[] payload = ResultCache.encoded(results);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.write(slot);
+        out.write(key);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        this.lock.writeLock().lock();
+        try {
+            final long pos = this.mutex.run(
+                () -> {
+                    if (this.reader != null && !this.same()) {
+                        this.reset();
+                        this.positions();
+                        this.open();
+                    }
+                    try (
+                        FileChannel channel = FileChannel.open(
+                            this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE
+                        )
+                    ) {
+                        long end = channel.size();
+                        if (end == 0L) {
+                            end += ResultCache.write(
+                                channel, ByteBuffer.allocate(4).putInt(0, ResultCache.MAGIC), 0L
+                            );
+                        }
+                        ResultCache.write(channel, ByteBuffer.wrap(bytes.toByteArray()), end);
+                        return end;
+                    }
+                }
+            );
+            if (this.reader == null) {
+                this.open();
+            }
+            this.slots.add(ByteBuffer.wrap(slot));
+            this.records.incrementAndGet();
+            this.index.put(ByteBuffer.wrap(key.clone()), pos + 2L * ResultCache.KEY);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * How many times results were found in the cache.
+     * @return The number of hits
+     */
+    public long hits() {
+        return this.hit.get();
+    }
+
+    /**
+     * How many times results were not found.
+     * @return The number of misses
+     */
+    public long misses() {
+        return this.miss.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            if (this.reader != null && this.garbage()) {
+                try {
+                    this.mutex.run(
+                        () -> {
+                            this.reset();
+                            this.positions();
+                            return this.garbage() && this.compact();
+                        }
+                    );
+                } catch (final IOException ex) {
+                    Logger.warn(this, "Can't compact %s: %[exception]s", this.file, ex);
+                }
+            }
+            if (this.reader != null) {
+                this.reader.close();
+                this.reader = null;
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%d result(s) stored, %d hit(s), %d miss(es)",
+            this.index.size(), this.hit.get(), this.miss.get()
+        );
+    }
+
+    /**
+     * Read positions of records from the file and open it for reading,
+     * if not yet.
+     * @throws IOException If fails
+     */
+    private void load() throws IOException {
+        if (!this.loaded) {
+            this.lock.writeLock().lock();
+            try {
+                if (!this.loaded) {
+                    if (Files.exists(this.file)) {
+                        this.mutex.run(
+                            () -> {
+                                this.positions();
+                                if (this.garbage() && this.compact()) {
+                                    this.reset();
+                                    this.positions();
+                                }
+                                return null;
+                            }
+                        );
+                    }
+                    if (Files.exists(this.file)) {
+                        this.open();
+                    }
+                    this.loaded = true;
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Read positions of records from the file and cut off a torn
+     * record at its end, while holding the lock. A file of another
+     * format, maybe a newer one, is moved aside, not cut.
+     * @return Length of the file without the torn record
+     * @throws IOException If fails
+     */
+    private long positions() throws IOException {
+        long good = 0L;
+        int magic = ResultCache.MAGIC;
+        try (
+            DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(this.file))
+            )
+        ) {
+            magic = input.readInt();
+            if (magic == ResultCache.MAGIC) {
+                good = 4L;
+                final byte[] slot = new byte[ResultCache.KEY];
+                final byte[] key = new byte[ResultCache.KEY];
+                while (true) {
+                    input.readFully(slot);
+                    input.readFully(key);
+                    final int length = input.readInt();
+                    ResultCache.skip(input, length);
+                    this.slots.add(ByteBuffer.wrap(slot.clone()));
+                    this.records.incrementAndGet();
+                    this.index.put(ByteBuffer.wrap(key.clone()), good + 2L * ResultCache.KEY);
+                    good += 2L * ResultCache.KEY + 4 + length;
+                }
+            }
+        } catch (final EOFException ex) {
+            // the last record is complete or torn, either way we stop here
+        }
+        if (magic != ResultCache.MAGIC) {
+            final Path aside = this.file.resolveSibling(
+                String.format("%s.%08x", this.file.getFileName(), magic)
+            );
+            Files.move(this.file, aside, StandardCopyOption.REPLACE_EXISTING);
+            Logger.warn(
+                this, "%s is not of format %08x, moved it to %s and starting a new one",
+                this.file, ResultCache.MAGIC, aside
+            );
+        } else if (Files.size(this.file) > good) {
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+            }
+        }
+        return good;
+    }
+
+    /**
+     * Are there too many dead records in the file?
+     * @return TRUE if it's time to compact it
+     */
+    private boolean garbage() {
+        return this.records.get() > ResultCache.GARBAGE + 2L * this.slots.size();
+    }
+
+    /**
+     * Forget positions of records, before they are read again.
+     */
+    private void reset() {
+        this.index.clear();
+        this.slots.clear();
+        this.records.set(0L);
+    }
+
+    /**
+     * Open the file for reading payloads, instead of the file
+     * it was open on, if any.
+     * @throws IOException If fails
+     */
+    private void open() throws IOException {
+        if (this.reader != null) {
+            this.reader.close();
+        }
+        this.reader = FileChannel.open(this.file, StandardOpenOption.READ);
+        this.identity = ResultCache.identity(this.file);
+    }
+
+    /**
+     * Is the reader open on the file, which is there now?
+     * @return TRUE if the file wasn't replaced
+     * @throws IOException If fails
+     */
+    private boolean same() throws IOException {
+        return Files.exists(this.file)
+            && Objects.equals(this.identity, ResultCache.identity(this.file));
+    }
+
+    /**
+     * Replace the file with a new one, which has only the last record
+     * of every slot, while holding the lock. If it fails, the file
+     * stays as it was.
+     * @return TRUE if the file was replaced
+     */
+    private boolean compact() {
+        boolean done;
+        try {
+            this.rewrite();
+            done = true;
+        } catch (final IOException ex) {
+            Logger.warn(this, "Can't compact %s: %[exception]s", this.file, ex);
+            done = false;
+        }
+        return done;
+    }
+
+    /**
+     * Write the last record of every slot into a new file and move
+     * it in place of the file.
+     * @throws IOException If fails
+     */
+    private void rewrite() throws IOException {
+        final Map<ByteBuffer, long[]> alive = new LinkedHashMap<>(this.slots.size());
+        try (
+            DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(this.file))
+            )
+        ) {
+            long pos = 4L;
+            ResultCache.skip(input, pos);
+            final byte[] slot = new byte[ResultCache.KEY];
+            while (true) {
+                input.readFully(slot);
+                ResultCache.skip(input, ResultCache.KEY);
+                final int length = input.readInt();
+                ResultCache.skip(input, length);
+                final ByteBuffer owner = ByteBuffer.wrap(slot.clone());
+                final long size = 2L * ResultCache.KEY + 4 + length;
+                alive.remove(owner);
+                alive.put(owner, new long[] {pos, size});
+                pos += size;
+            }
+        } catch (final EOFException ex) {
+            // a torn record is cut off already, so this is the end of the file
+        }
+        final Path tmp = Files.createTempFile(
+            this.file.toAbsolutePath().getParent(), ResultCache.FILE, ".tmp"
+        );
+        try {
+            try (
+                FileChannel source = FileChannel.open(this.file, StandardOpenOption.READ);
+                FileChannel target = FileChannel.open(tmp, StandardOpenOption.WRITE)
+            ) {
+                long end = ResultCache.write(
+                    target, ByteBuffer.allocate(4).putInt(0, ResultCache.MAGIC), 0L
+                );
+                for (final long[] rec : alive.values()) {
+                    final ByteBuffer buf = ByteBuffer.allocate((int) rec[1]);
+                    ResultCache.read(source, buf, rec[0]);
+                    buf.flip();
+                    end += ResultCache.write(target, buf, end);
+                }
+            }
+            Files.move(
+                tmp, this.file,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Read the payload.
+     * @param pos Position of its length in the file
+     * @return The payload
+     * @throws IOException If fails
+     */
+    private byte[] payload(final long pos) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            if (this.reader == null) {
+                throw new ClosedChannelException();
+            }
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            ResultCache.read(this.reader, length, pos);
+            final ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+            ResultCache.read(this.reader, payload, pos + 4);
+            return payload.array();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Slot of the object.
+     * @param owner The analysis and the locator of the object
+     * @return SHA-256 hash
+     */
+    private static byte[] slot(final String owner) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(
+                owner.getBytes(StandardCharsets.UTF_8)
+            );
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Identity of the file, to tell it from another file
+     * with the same name.
+     * @param path The file
+     * @return Identity, or NULL if the file system doesn't have it
+     * @throws IOException If fails
+     */
+    private static Object identity(final Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Encode results.
+     * @param results Completed results
+     * @return The payload
+     * @throws IOException If fails
+     */
+    private static byte[] encoded(final Iterable<Result> results) throws IOException {
+        final List<Result> all = new ArrayList<>(1);
+        for (final Result result : results) {
+            all.add(result);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(all.size());
+        for (final Result result : all) {
+            ResultCache.string(out, result.ruleId());
+            final List<String> errors = new ArrayList<>(1);
+            for (final String error : result) {
+                errors.add(error);
+            }
+            out.writeInt(errors.size());
+            for (final String error : errors) {
+                ResultCache.string(out, error);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode results.
+     * @param payload The payload
+     * @param type Analysis the results belong to
+     * @return Completed results
+     * @throws IOException If fails
+     */
+    private static List<Result> decoded(final byte[] payload,
+        final Class<? extends Analysis> type) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        final int total = input.readInt();
+        final List<Result> results = new ArrayList<>(total);
+        for (int idx = 0; idx < total; ++idx) {
+            final String rule = ResultCache.string(input);
+            final int count = input.readInt();
+            final List<String> errors = new ArrayList<>(count);
+            for (int err = 0; err < count; ++err) {
+                errors.add(ResultCache.string(input));
+            }
+            results.add(new Result.Completed(type, errors, rule));
+        }
+        return results;
+    }
+
+    /**
+     * Write a string, prefixed with its length.
+     * @param out Where to write
+     * @param str The string
+     * @throws IOException If fails
+     */
+    private static void string(final DataOutputStream out, final String str)
+        throws IOException {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string, prefixed with its length.
+     * @param input Where to read from
+     * @return The string
+     * @throws IOException If fails
+     */
+    private static String string(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skip bytes, or fail if there are not that many.
+     * @param input Where to skip
+     * @param length How many bytes to skip
+     * @throws IOException If fails or there are fewer bytes
+     */
+    private static void skip(final InputStream input, final long length) throws IOException {
+        long left = length;
+        while (left > 0L) {
+            final long skipped = input.skip(left);
+            if (skipped <= 0L) {
+                if (input.read() < 0) {
+                    throw new EOFException();
+                }
+                --left;
+            } else {
+                left -= skipped;
+            }
+        }
+    }
+
+    /**
+     * Write all bytes at the position.
+     * @param channel Where to write
+     * @param buf What to write
+     * @param pos Position to write at
+     * @return How many bytes were written
+     * @throws IOException If fails
+     */
+    private static long write(final FileChannel channel, final ByteBuffer buf, final long pos)
+        throws IOException {
+        long done = 0L;
+        while (buf.hasRemaining()) {
+            done += channel.write(buf, pos + done);
+        }
+        return done;
+    }
+
+    /**
+     * Read all bytes at the position.
+     * @param channel Where to read from
+     * @param buf Where to read to
+     * @param pos Position to read at
+     * @throws IOException If fails or the file ends
+     */
+    private static void read(final FileChannel channel, final ByteBuffer buf, final long pos)
+        throws IOException {
+        long done = 0L;
+        while (buf.hasRemaining()) {
+            final int len = channel.read(buf, pos + done);
+            if (len < 0) {
+                throw new EOFException(String.format("Results are cut at %d", pos + done));
+            }
+            done += len;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.manifests.Manifests;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.StringJoiner;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonParser;
+
+/**
+ * SARIF log, which is written while results arrive.
+ * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd01/sarif-v2.0-csprd01.html></a>
+ *
+ * <p>Every result goes straight into the output, so the memory needed
+ * doesn't depend on the number of results. The invocation objects,
+ * which must come after all results, are spilled into a file in the
+ * given directory and copied to the output when the sink is closed.
+ * The file is deleted on close, even if writing fails.</p>
+ *
+ * <p>The sink flushes, but never closes the writer.</p>
+ *
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class SarifSink implements Sink, Closeable {
+
+    /**
+     * Version of SARIF format specification.
+     */
+    private static final String SARIF_VERSION = "2.1.0";
+
+    // @checkstyle LineLengthCheck (5 lines)
+    /**
+     * SARIF JSON schema URL.
+     */
+    private static final String SARIF_SCHEMA =
+        "https://raw.githubusercontent.com/oasis-tcs/sarif-spec/master/Schemata/sarif-schema-2.1.0.json";
+
+    /**
+     * SARIF property "kind".
+     */
+    private static final String PROPERTY_KIND = "kind";
+
+    /**
+     * SARIF property "text".
+     */
+    private static final String PROPERTY_TEXT = "text";
+
+    /**
+     * SARIF property "level".
+     */
+    private static final String PROPERTY_LEVEL = "level";
+
+    /**
+     * SARIF property "message".
+     */
+    private static final String PROPERTY_MESSAGE = "message";
+
+    /**
+     * SARIF severity level "error".
+     */
+    private static final String LEVEL_ERROR = "error";
+
+    /**
+     * The output.
+     */
+    private final Writer output;
+
+    /**
+     * Directory for the spill file.
+     */
+    private final Path dir;
+
+    /**
+     * Generator of the log, when started.
+     */
+    private JsonGenerator json;
+
+    /**
+     * Temp file with invocation objects, when started.
+     */
+    private Path spill;
+
+    /**
+     * Stream of the spill file, when started.
+     */
+    private OutputStream stream;
+
+    /**
+     * Generator of invocation objects, when started.
+     */
+    private JsonGenerator invocations;
+
+    /**
+     * Ctor.
+     * @param out Where to write the log
+     * @param tmp Directory for the spill file
+     */
+    SarifSink(final Writer out, final Path tmp) {
+        this.output = out;
+        this.dir = tmp;
+    }
+
+    @Override
+    public void accept(final Result res) throws IOException {
+        this.start();
+        if (!res.failure().isPresent()) {
+            this.json.write(SarifSink.resultObject(res));
+        }
+        this.invocations.write(SarifSink.invocationObject(res));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.start();
+            this.json.writeEnd();
+            this.invocations.writeEnd();
+            this.invocations.close();
+            this.json.writeStartArray("invocations");
+            try (InputStream input = Files.newInputStream(this.spill)) {
+                SarifSink.copy(Json.createParser(input), this.json);
+            }
+            this.json.writeEnd().writeEnd().writeEnd().writeEnd();
+            this.json.flush();
+        } finally {
+            if (this.stream != null) {
+                this.stream.close();
+            }
+            if (this.spill != null) {
+                Files.deleteIfExists(this.spill);
+            }
+        }
+    }
+
+    /**
+     * Start writing, unless already started.
+     * @throws IOException If fails
+     */
+    private void start() throws IOException {
+        if (this.json == null) {
+            this.json = Json.createGenerator(this.output)
+                .writeStartObject()
+                .write("version", SarifSink.SARIF_VERSION)
+                .write("$schema", SarifSink.SARIF_SCHEMA)
+                .writeStartArray("runs")
+                .writeStartObject()
+                .write("tool", SarifSink.toolObject())
+                .writeStartArray("results");
+            Files.createDirectories(this.dir);
+            this.spill = Files.createTempFile(this.dir, "polystat-sarif", ".json");
+            this.stream = Files.newOutputStream(this.spill);
+            this.invocations = Json.createGenerator(this.stream).writeStartArray();
+        }
+    }
+
+    /**
+     * Copy all values of the top-level array from the parser
+     * into the generator.
+     * @param parser The parser
+     * @param generator The generator
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static void copy(final JsonParser parser, final JsonGenerator generator) {
+        final Deque<Boolean> nested = new ArrayDeque<>(0);
+        String key = null;
+        while (parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            switch (event) {
+                case KEY_NAME:
+                    key = parser.getString();
+                    break;
+                case START_OBJECT:
+                    if (key == null) {
+                        generator.writeStartObject();
+                    } else {
+                        generator.writeStartObject(key);
+                    }
+                    nested.push(true);
+                    key = null;
+                    break;
+                case START_ARRAY:
+                    if (!nested.isEmpty()) {
+                        if (key == null) {
+                            generator.writeStartArray();
+                        } else {
+                            generator.writeStartArray(key);
+                        }
+                    }
+                    nested.push(false);
+                    key = null;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    nested.pop();
+                    if (!nested.isEmpty()) {
+                        generator.writeEnd();
+                    }
+                    break;
+                case VALUE_STRING:
+                    SarifSink.value(generator, key, Json.createValue(parser.getString()));
+                    key = null;
+                    break;
+                case VALUE_NUMBER:
+                    SarifSink.value(generator, key, Json.createValue(parser.getBigDecimal()));
+                    key = null;
+                    break;
+                case VALUE_TRUE:
+                    SarifSink.value(generator, key, JsonValue.TRUE);
+                    key = null;
+                    break;
+                case VALUE_FALSE:
+                    SarifSink.value(generator, key, JsonValue.FALSE);
+                    key = null;
+                    break;
+                default:
+                    SarifSink.value(generator, key, JsonValue.NULL);
+                    key = null;
+                    break;
+            }
+        }
+        parser.close();
+    }
+
+    /**
+     * Write a value, with or without a key.
+     * @param generator The generator
+     * @param key The key or NULL
+     * @param value The value
+     */
+    private static void value(final JsonGenerator generator, final String key,
+        final JsonValue value) {
+        if (key == null) {
+            generator.write(value);
+        } else {
+            generator.write(key, value);
+        }
+    }
+
+    // I couldn't find a better existing function for this
+    /**
+     * Joins an iterable of strings with a delimiter.
+     * @param delim A delimiter
+     * @param strings An iterable of strings
+     * @return Strings joined with the delimiter
+     */
+    private static String joinStrings(final String delim, final Iterable<String> strings) {
+        final StringJoiner result = new StringJoiner(delim);
+        for (final String str : strings) {
+            result.add(str);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Extracts ruleId string from the Result object.
+     * @param res Result object
+     * @return The ruleId string
+     */
+    private static String ruleId(final Result res) {
+        return String.join(
+            "/",
+            res.analysis().getSimpleName(),
+            res.ruleId()
+        );
+    }
+
+    /**
+     * Generates a reportingDescriptor object containing a single id field
+     * which corresponds to ruleId.
+     * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10128027></a>
+     * @param res Polystat result
+     * @return JSON object reportingDescriptor
+     */
+    private static JsonObject ruleObject(final Result res) {
+        return Json.createObjectBuilder().add("id", ruleId(res)).build();
+    }
+
+    /**
+     * Generates a tool object.
+     * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10127720></a>
+     * @return JSON object tool
+     */
+    private static JsonObject toolObject() {
+        final JsonObjectBuilder driver = Json.createObjectBuilder()
+            .add("name", "Polystat")
+            .add("informationUri", "https://www.polystat.org/")
+            .add("semanticVersion", Manifests.read("Polystat-Version"));
+        final JsonObject tool = Json.createObjectBuilder()
+            .add("driver", driver)
+            .build();
+        return tool;
+    }
+
+    /**
+     * Generates a result object.
+     * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10127829></a>
+     * @param res Polystat result object, which didn't fail
+     * @return JSON object result
+     */
+    private static JsonObject resultObject(final Result res) {
+        final JsonObjectBuilder resultobj = Json.createObjectBuilder();
+        final String kind;
+        final String level;
+        final String text;
+        if (res.iterator().hasNext()) {
+            kind = "fail";
+            level = SarifSink.LEVEL_ERROR;
+            text = joinStrings("\n", res);
+        } else {
+            kind = "pass";
+            level = "none";
+            text = "No errors were found.";
+        }
+        final JsonObject message =
+            Json.createObjectBuilder().add(SarifSink.PROPERTY_TEXT, text).build();
+        resultobj.add("ruleId", ruleId(res));
+        resultobj.add(SarifSink.PROPERTY_LEVEL, level);
+        resultobj.add(SarifSink.PROPERTY_KIND, kind);
+        resultobj.add(SarifSink.PROPERTY_MESSAGE, message);
+        return resultobj.build();
+    }
+
+    /**
+     * Creates a message object to be used in notification object.
+     * <a href="https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10128090"></a>
+     * @param res Polystat result object
+     * @return JSON object message
+     */
+    private static JsonObject messageObjectForNotification(final Result res) {
+        final JsonObjectBuilder message = Json.createObjectBuilder();
+        final String text;
+        final String prefix =
+            String.format("Analyzer \"%s\" completed successfully. ", ruleId(res));
+        if (res.failure().isPresent()) {
+            text = res.failure().get().getMessage();
+        } else if (res.iterator().hasNext()) {
+            text = String.format("%sSome errors were found.", prefix);
+        } else {
+            text = String.format("%sNo errors were found", prefix);
+        }
+        message.add(SarifSink.PROPERTY_TEXT, text);
+        return message.build();
+    }
+
+    /**
+     * Generates a notification object.
+     * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10128085></a>
+     * @param res Polystat result object
+     * @return JSON object notification
+     */
+    private static JsonObject notificationObject(final Result res) {
+        final JsonObjectBuilder notification = Json.createObjectBuilder();
+        final JsonObject rule = ruleObject(res);
+        final JsonObject message = messageObjectForNotification(res);
+        if (res.failure().isPresent()) {
+            final Throwable exc = res.failure().get();
+            final JsonObject exception = Json.createObjectBuilder()
+                .add(SarifSink.PROPERTY_KIND, exc.getClass().getName())
+                .add(SarifSink.PROPERTY_MESSAGE, exc.getMessage())
+                .build();
+            notification.add("exception", exception);
+            notification.add(SarifSink.PROPERTY_LEVEL, SarifSink.LEVEL_ERROR);
+        }
+        notification.add(SarifSink.PROPERTY_MESSAGE, message);
+        notification.add("associatedRule", rule);
+        return notification.build();
+    }
+
+    /**
+     * Generates an invocation object with a single notification.
+     * <a href=https://docs.oasis-open.org/sarif/sarif/v2.0/csprd02/sarif-v2.0-csprd02.html#_Toc10127686></a>
+     * @param res Polystat result object
+     * @return JSON object invocation
+     */
+    private static JsonObject invocationObject(final Result res) {
+        return Json.createObjectBuilder()
+            .add(
+                "toolExecutionNotifications",
+                Json.createArrayBuilder().add(notificationObject(res))
+            )
+            .add("executionSuccessful", !res.failure().isPresent())
+            .build();
+    }
+}
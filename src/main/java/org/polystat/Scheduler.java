@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs analysis tasks on a bounded pool of threads.
+ *
+ * <p>Every task is submitted separately, but the results are pushed
+ * in the order the tasks were given, not in the order they finish.
+ * This is why the report produced by many threads is exactly the same
+ * as the one produced by a single thread.</p>
+ *
+ * @since 1.0
+ */
+final class Scheduler {
+
+    /**
+     * How many threads to use.
+     */
+    private final int threads;
+
+    /**
+     * Which kind of pool to use.
+     */
+    private final Scheduler.Kind kind;
+
+    /**
+     * Ctor.
+     * @param total How many threads to use
+     * @param knd Which kind of pool to use
+     */
+    Scheduler(final int total, final Scheduler.Kind knd) {
+        if (total < 1) {
+            throw new IllegalArgumentException(
+                String.format("The number of threads must be positive: %d", total)
+            );
+        }
+        this.threads = total;
+        this.kind = knd;
+    }
+
+    /**
+     * Run all tasks and push their results into the sink.
+     *
+     * <p>Results of a task are pushed as soon as the task and all tasks
+     * before it are finished.</p>
+     * @param tasks The tasks to run
+     * @param sink Where to push results, in the order of tasks
+     * @throws InterruptedException If interrupted while waiting
+     * @throws IOException If the sink fails
+     */
+    public void run(
+        final Collection<? extends Callable<Iterable<Result>>> tasks,
+        final Sink sink
+    ) throws InterruptedException, IOException {
+        final ExecutorService pool = this.kind.pool(this.threads);
+        try {
+            final List<Future<Iterable<Result>>> futures =
+                new ArrayList<>(tasks.size());
+            for (final Callable<Iterable<Result>> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (final Future<Iterable<Result>> future : futures) {
+                for (final Result result : Scheduler.done(future)) {
+                    sink.accept(result);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for the future and return its value.
+     * @param future The future
+     * @return Its value
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private static Iterable<Result> done(final Future<Iterable<Result>> future)
+        throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Kind of the thread pool.
+     *
+     * @since 1.0
+     */
+    enum Kind {
+        /**
+         * Work-stealing {@link ForkJoinPool}.
+         */
+        FORKJOIN {
+            @Override
+            ExecutorService pool(final int threads) {
+                return new ForkJoinPool(threads);
+            }
+        },
+
+        /**
+         * Plain pool with a fixed number of threads.
+         */
+        FIXED {
+            @Override
+            ExecutorService pool(final int threads) {
+                return Executors.newFixedThreadPool(threads);
+            }
+        };
+
+        /**
+         * Make a new pool.
+         * @param threads How many threads
+         * @return The pool
+         */
+        abstract ExecutorService pool(int threads);
+    }
+}
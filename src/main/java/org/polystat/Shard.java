@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * One of a few shards, which split programs between machines.
+ *
+ * <p>Programs are balanced by their cost, with the longest processing
+ * time first rule: the most expensive program goes to the shard with
+ * the smallest total cost so far, ties broken by names and by numbers
+ * of shards. Every machine gets the same split, as long as it sees
+ * the same programs with the same costs.</p>
+ *
+ * @since 1.0
+ */
+final class Shard {
+
+    /**
+     * Number of this shard, starting from one.
+     */
+    private final int index;
+
+    /**
+     * Total number of shards.
+     */
+    private final int total;
+
+    /**
+     * Ctor.
+     * @param spec Number of the shard and the total, for example "2/5"
+     */
+    Shard(final String spec) {
+        this(Shard.part(spec, 0), Shard.part(spec, 1));
+    }
+
+    /**
+     * Ctor.
+     * @param index Number of this shard, starting from one
+     * @param total Total number of shards
+     */
+    Shard(final int index, final int total) {
+        if (total < 1 || index < 1 || index > total) {
+            throw new IllegalArgumentException(
+                String.format("Shard %d/%d is out of range", index, total)
+            );
+        }
+        this.index = index;
+        this.total = total;
+    }
+
+    /**
+     * Programs of this shard.
+     * @param costs Costs of all programs, by their names
+     * @return Names of programs of this shard, in alphabetical order
+     */
+    public List<String> programs(final Map<String, Long> costs) {
+        final List<String> order = costs.keySet().stream()
+            .sorted(
+                Comparator.<String, Long>comparing(costs::get)
+                    .reversed()
+                    .thenComparing(Comparator.naturalOrder())
+            )
+            .collect(Collectors.toList());
+        final long[] loads = new long[this.total];
+        final List<String> mine = new ArrayList<>(order.size() / this.total + 1);
+        for (final String name : order) {
+            int lightest = 0;
+            for (int bin = 1; bin < loads.length; ++bin) {
+                if (loads[bin] < loads[lightest]) {
+                    lightest = bin;
+                }
+            }
+            loads[lightest] += costs.get(name);
+            if (lightest == this.index - 1) {
+                mine.add(name);
+            }
+        }
+        mine.sort(Comparator.naturalOrder());
+        return mine;
+    }
+
+    /**
+     * Parse a part of the spec.
+     * @param spec The spec, for example "2/5"
+     * @param pos Position of the part
+     * @return The number
+     */
+    private static int part(final String spec, final int pos) {
+        final String[] parts = spec.split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(
+                String.format("Shard must look like '2/5', while '%s' given", spec)
+            );
+        }
+        return Integer.parseInt(parts[pos].trim());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs a job once for all callers, which ask for the same key
+ * at the same time.
+ *
+ * <p>The first caller runs the job, while the others wait for it to finish
+ * and get the same outcome. The job itself runs under one of the striped
+ * locks, so jobs with colliding keys never overlap, even if they
+ * are submitted by different instances of {@link Program}. If the job
+ * fails, even with an {@link Error}, the others get the same failure,
+ * unless it fails because the thread of the first caller is interrupted:
+ * then the others run the job again, since nothing is wrong with it.</p>
+ *
+ * @since 1.0
+ */
+final class SingleFlight {
+
+    /**
+     * Outcome of a job, whose caller was interrupted.
+     */
+    private static final Object AGAIN = new Object();
+
+    /**
+     * Jobs running right now, by their keys.
+     */
+    private final Map<String, CompletableFuture<Object>> running;
+
+    /**
+     * Striped locks.
+     */
+    private final Lock[] stripes;
+
+    /**
+     * Ctor.
+     * @param total How many lock stripes to have
+     */
+    SingleFlight(final int total) {
+        this.running = new ConcurrentHashMap<>(0);
+        this.stripes = new Lock[total];
+        for (int idx = 0; idx < total; ++idx) {
+            this.stripes[idx] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Run the job, or wait for the same job if it is already running.
+     * @param key The key of the job
+     * @param job The job
+     * @param <T> Type of the outcome
+     * @return Outcome of the job, which may have been run by another caller
+     * @throws Exception If the job fails
+     */
+    @SuppressWarnings({"PMD.AvoidCatchingThrowable", "unchecked"})
+    public <T> T run(final String key, final Callable<T> job) throws Exception {
+        final CompletableFuture<Object> mine = new CompletableFuture<>();
+        final CompletableFuture<Object> other = this.running.putIfAbsent(key, mine);
+        final T outcome;
+        if (other == null) {
+            final Lock lock = this.stripes[
+                Math.floorMod(key.hashCode(), this.stripes.length)
+            ];
+            lock.lock();
+            try {
+                outcome = job.call();
+                mine.complete(outcome);
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Throwable ex) {
+                if (ex instanceof InterruptedException
+                    || Thread.currentThread().isInterrupted()) {
+                    mine.complete(SingleFlight.AGAIN);
+                } else {
+                    mine.completeExceptionally(ex);
+                }
+                throw ex;
+            } finally {
+                lock.unlock();
+                this.running.remove(key, mine);
+            }
+        } else {
+            final Object done;
+            try {
+                done = other.get();
+            } catch (final ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw ex;
+            }
+            if (done == SingleFlight.AGAIN) {
+                this.running.remove(key, other);
+                outcome = this.run(key, job);
+            } else {
+                outcome = (T) done;
+            }
+        }
+        return outcome;
+    }
+}
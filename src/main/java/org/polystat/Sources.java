@@ -0,0 +1,296 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.log.Logger;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * EO sources in a directory tree, by fully qualified names of
+ * their programs.
+ *
+ * <p>The tree is walked in parallel, a fork-join task per directory,
+ * without following symbolic links. The name of a program is its
+ * {@code +package} and the name of its file, for example
+ * {@code sandbox.derived}; a source without {@code +package} takes
+ * the path of its directory as the package. If two sources have the
+ * same name, the first one in the order of their paths wins.</p>
+ *
+ * @since 1.0
+ */
+final class Sources {
+
+    /**
+     * Extension of EO sources.
+     */
+    private static final String EXT = ".eo";
+
+    /**
+     * Meta of the package.
+     */
+    private static final String PACKAGE = "+package ";
+
+    /**
+     * Root of the tree.
+     */
+    private final Path root;
+
+    /**
+     * Ctor.
+     * @param root Root of the tree
+     */
+    Sources(final Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Find all sources.
+     * @return Paths of sources, relative to the root, by names of programs
+     * @throws IOException If fails to read the tree
+     */
+    public SortedMap<String, Path> programs() throws IOException {
+        final List<Path> files;
+        try {
+            files = ForkJoinPool.commonPool().invoke(new Sources.Walk(this.root));
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        final Map<Path, String> names;
+        try {
+            names = files.parallelStream().collect(
+                Collectors.toConcurrentMap(file -> file, this::name)
+            );
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        final SortedMap<Path, String> sorted = new TreeMap<>(names);
+        final SortedMap<String, Path> programs = new TreeMap<>();
+        for (final Map.Entry<Path, String> ent : sorted.entrySet()) {
+            final Path rel = this.root.relativize(ent.getKey());
+            final Path before = programs.putIfAbsent(ent.getValue(), rel);
+            if (before != null) {
+                Logger.warn(
+                    this, "Program %s is in %s already, %s is ignored",
+                    ent.getValue(), before, rel
+                );
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * Key of a source, which names its XMIR and its fingerprint: the
+     * relative path without extension, with forward slashes.
+     * @param rel Path of the source, relative to the root
+     * @return The key, for example {@code sub/foo}
+     */
+    static String key(final Path rel) {
+        final List<String> parts = new ArrayList<>(rel.getNameCount());
+        for (final Path part : rel) {
+            parts.add(part.toString());
+        }
+        final String path = String.join("/", parts);
+        return path.substring(0, path.length() - Sources.EXT.length());
+    }
+
+    /**
+     * Name of the program in the source.
+     * @param file Path of the source
+     * @return Fully qualified name
+     */
+    private String name(final Path file) {
+        final String base = file.getFileName().toString();
+        final String simple = base.substring(0, base.length() - Sources.EXT.length());
+        String pkg = Sources.pkg(file);
+        if (pkg == null) {
+            final Path dir = this.root.relativize(file).getParent();
+            if (dir == null) {
+                pkg = "";
+            } else {
+                final List<String> parts = new ArrayList<>(dir.getNameCount());
+                for (final Path part : dir) {
+                    parts.add(part.toString());
+                }
+                pkg = String.join(".", parts);
+            }
+        }
+        final String name;
+        if (pkg.isEmpty()) {
+            name = simple;
+        } else {
+            name = String.format("%s.%s", pkg, simple);
+        }
+        return name;
+    }
+
+    /**
+     * Read the package of the source from its metas.
+     * @param file Path of the source
+     * @return The package or NULL if there is no such meta
+     */
+    private static String pkg(final Path file) {
+        String pkg = null;
+        try (
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)
+            )
+        ) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final String meta = line.trim();
+                if (meta.startsWith(Sources.PACKAGE)) {
+                    pkg = meta.substring(Sources.PACKAGE.length()).trim();
+                    break;
+                }
+                if (!meta.isEmpty() && meta.charAt(0) != '+' && meta.charAt(0) != '#') {
+                    break;
+                }
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return pkg;
+    }
+
+    /**
+     * Sources, which match glob patterns, given relative to the root.
+     *
+     * <p>A source matches if it matches any of the includes, or there are
+     * no includes, and matches none of the excludes.</p>
+     *
+     * @since 1.0
+     */
+    static final class Globs implements Predicate<Path> {
+
+        /**
+         * Patterns to include.
+         */
+        private final Collection<PathMatcher> includes;
+
+        /**
+         * Patterns to exclude.
+         */
+        private final Collection<PathMatcher> excludes;
+
+        /**
+         * Ctor.
+         * @param includes Patterns to include, for example {@code sandbox/**}
+         * @param excludes Patterns to exclude
+         */
+        Globs(final Collection<String> includes, final Collection<String> excludes) {
+            this.includes = Globs.matchers(includes);
+            this.excludes = Globs.matchers(excludes);
+        }
+
+        @Override
+        public boolean test(final Path rel) {
+            return (this.includes.isEmpty()
+                || this.includes.stream().anyMatch(glob -> glob.matches(rel)))
+                && this.excludes.stream().noneMatch(glob -> glob.matches(rel));
+        }
+
+        /**
+         * Compile patterns.
+         * @param globs Patterns
+         * @return Matchers
+         */
+        private static Collection<PathMatcher> matchers(final Collection<String> globs) {
+            final FileSystem fsys = FileSystems.getDefault();
+            return globs.stream()
+                .map(glob -> fsys.getPathMatcher(String.format("glob:%s", glob)))
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Walk of a directory, which forks a walk for every subdirectory.
+     *
+     * @since 1.0
+     */
+    private static final class Walk extends RecursiveTask<List<Path>> {
+
+        /**
+         * Serialization marker.
+         */
+        private static final long serialVersionUID = 0x7eafL;
+
+        /**
+         * The directory.
+         */
+        private final transient Path dir;
+
+        /**
+         * Ctor.
+         * @param dir The directory
+         */
+        Walk(final Path dir) {
+            super();
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            final List<Path> files = new ArrayList<>(0);
+            final List<Sources.Walk> walks = new ArrayList<>(0);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.dir)) {
+                for (final Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        final Sources.Walk walk = new Sources.Walk(entry);
+                        walk.fork();
+                        walks.add(walk);
+                    } else if (entry.getFileName().toString().endsWith(Sources.EXT)
+                        && Files.isRegularFile(entry)) {
+                        files.add(entry);
+                    }
+                }
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            for (final Sources.Walk walk : walks) {
+                files.addAll(walk.join());
+            }
+            return files;
+        }
+    }
+}
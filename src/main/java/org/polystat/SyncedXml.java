@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.NamespaceContext;
+import org.w3c.dom.Node;
+
+/**
+ * XML, which is read by one thread at a time.
+ *
+ * <p>Nodes of a DOM, even a fully expanded one, are not safe for
+ * concurrent reading: Xerces caches positions of children in their
+ * parents, while XPath walks over them. All objects of one document
+ * are read under the same lock, and XML found in them is read under
+ * this lock too.</p>
+ *
+ * @since 1.0
+ * @checkstyle AbbreviationAsWordInNameCheck (5 lines)
+ */
+final class SyncedXml implements XML {
+
+    /**
+     * The origin.
+     */
+    private final XML origin;
+
+    /**
+     * The lock, the same for all XML of the document.
+     */
+    private final Object lock;
+
+    /**
+     * Ctor.
+     * @param xml The origin
+     * @param mutex The lock, the same for all XML of the document
+     */
+    SyncedXml(final XML xml, final Object mutex) {
+        this.origin = xml;
+        this.lock = mutex;
+    }
+
+    @Override
+    public List<String> xpath(final String query) {
+        synchronized (this.lock) {
+            return this.origin.xpath(query);
+        }
+    }
+
+    @Override
+    public List<XML> nodes(final String query) {
+        final List<XML> found;
+        synchronized (this.lock) {
+            found = this.origin.nodes(query);
+        }
+        final List<XML> synced = new ArrayList<>(found.size());
+        for (final XML xml : found) {
+            synced.add(new SyncedXml(xml, this.lock));
+        }
+        return synced;
+    }
+
+    @Override
+    public XML registerNs(final String prefix, final Object uri) {
+        synchronized (this.lock) {
+            return new SyncedXml(this.origin.registerNs(prefix, uri), this.lock);
+        }
+    }
+
+    @Override
+    public XML merge(final NamespaceContext context) {
+        synchronized (this.lock) {
+            return new SyncedXml(this.origin.merge(context), this.lock);
+        }
+    }
+
+    @Override
+    public Node node() {
+        synchronized (this.lock) {
+            return this.origin.node();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this.lock) {
+            return this.origin.toString();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.cactoos.Func;
+import org.cactoos.list.ListOf;
+
+/**
+ * A single unit of work: one analyzer applied to one object,
+ * or to a few objects at once.
+ *
+ * <p>Any exception thrown by the analyzer is turned into a
+ * {@link Result.Failed}, so a broken object never affects
+ * the other tasks of the same analyzer. If the analyzer fails
+ * with a few objects at once, they are analyzed again one by one,
+ * so that a broken object doesn't affect its neighbours either.</p>
+ *
+ * <p>With a deadline, the analyzer runs in a separate thread, and if
+ * it doesn't finish in time, the thread is interrupted and the object
+ * gets {@link Result.TimedOut}. XMIR of the object is retrieved before,
+ * in the thread of the task, so that compilation doesn't count against
+ * the deadline and is never interrupted by it. The analyzer may ignore the
+ * interruption and keep the thread busy, but nobody waits for it,
+ * and its instance is not reused, see {@link Pool}.
+ * A few objects are analyzed one by one then, each with its own
+ * deadline, so that a slow object doesn't take the results
+ * of its neighbours with it.</p>
+ *
+ * @since 1.0
+ */
+final class Task implements Callable<Iterable<Result>> {
+
+    /**
+     * Threads for analyzers with deadlines, shared by all tasks.
+     */
+    private static final ExecutorService RUNNERS = Executors.newCachedThreadPool(
+        job -> {
+            final Thread thread = new Thread(job, "polystat-task");
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
+
+    /**
+     * Type of the analyzer, to report failures on behalf of.
+     */
+    private final Class<? extends Analysis> type;
+
+    /**
+     * The analyzer.
+     */
+    private final Analysis analysis;
+
+    /**
+     * Function to retrieve XMIR by locator.
+     */
+    private final Func<String, XML> xmir;
+
+    /**
+     * Locators of objects, for example "\\Phi.foo".
+     */
+    private final List<String> locators;
+
+    /**
+     * Milliseconds the analyzer is given for each object, or zero for no limit.
+     */
+    private final long millis;
+
+    /**
+     * Timings of analyzers.
+     */
+    private final Metrics metrics;
+
+    /**
+     * Ctor.
+     * @param anl The analyzer
+     * @param xml Function to retrieve XMIR by locator
+     * @param lctr Locator of the object to analyze
+     */
+    Task(final Analysis anl, final Func<String, XML> xml, final String lctr) {
+        this(anl.getClass(), anl, xml, lctr, 0L, new Metrics(false));
+    }
+
+    /**
+     * Ctor.
+     * @param type Type of the analyzer, to report failures on behalf of
+     * @param anl The analyzer
+     * @param xml Function to retrieve XMIR by locator
+     * @param lctr Locator of the object to analyze
+     * @param millis Milliseconds the analyzer is given, or zero for no limit
+     * @param metrics Timings of analyzers, by their simple names
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Task(final Class<? extends Analysis> type, final Analysis anl,
+        final Func<String, XML> xml, final String lctr, final long millis,
+        final Metrics metrics) {
+        this(type, anl, xml, Collections.singletonList(lctr), millis, metrics);
+    }
+
+    /**
+     * Ctor.
+     * @param type Type of the analyzer, to report failures on behalf of
+     * @param anl The analyzer
+     * @param xml Function to retrieve XMIR by locator
+     * @param lctrs Locators of objects to analyze
+     * @param millis Milliseconds the analyzer is given for each object,
+     *  or zero for no limit
+     * @param metrics Timings of analyzers, by their simple names
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    Task(final Class<? extends Analysis> type, final Analysis anl,
+        final Func<String, XML> xml, final List<String> lctrs, final long millis,
+        final Metrics metrics) {
+        this.type = type;
+        this.analysis = anl;
+        this.xmir = xml;
+        this.locators = lctrs;
+        this.millis = millis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Iterable<Result> call() {
+        return Task.flat(this.results());
+    }
+
+    /**
+     * Run the analyzer and keep results of every object apart.
+     *
+     * <p>If the analyzer fails as a whole, the failure is given
+     * to the first object, and the others get no results.</p>
+     * @return Results, by locators, in the order of locators
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public Map<String, List<Result>> results() {
+        final Events.Outcome<Iterable<Result>> event = Events.analyze(
+            this.type, String.join(" ", this.locators)
+        );
+        final long start = System.nanoTime();
+        Map<String, List<Result>> results;
+        try {
+            if (this.millis > 0L) {
+                results = this.limited();
+            } else {
+                results = this.unlimited();
+            }
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            results = new LinkedHashMap<>(this.locators.size());
+            for (final String locator : this.locators) {
+                results.put(locator, new ArrayList<>(0));
+            }
+            results.get(this.locators.get(0)).add(
+                new Result.Failed(this.type, ex, this.type.getName())
+            );
+        }
+        this.metrics.record(
+            String.format("analysis.%s", this.type.getSimpleName()), start
+        );
+        event.finish(Task.flat(results));
+        return results;
+    }
+
+    /**
+     * Run the analyzer in this thread.
+     * @return Results, by locators
+     * @throws Exception If fails
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Map<String, List<Result>> unlimited() throws Exception {
+        final Map<String, List<Result>> results = new LinkedHashMap<>(this.locators.size());
+        if (this.locators.size() == 1) {
+            final String locator = this.locators.get(0);
+            results.put(locator, new ListOf<>(this.analysis.errors(this.xmir, locator)));
+        } else {
+            Map<String, Iterable<Result>> all;
+            try {
+                all = this.analysis.errors(this.xmir, this.locators);
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                all = this.separately();
+            }
+            for (final String locator : this.locators) {
+                results.put(locator, new ListOf<>(all.get(locator)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run the analyzer with objects one by one.
+     * @return Results by locators
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Map<String, Iterable<Result>> separately() {
+        final Map<String, Iterable<Result>> all = new LinkedHashMap<>(this.locators.size());
+        for (final String locator : this.locators) {
+            Iterable<Result> results;
+            try {
+                results = new ListOf<>(this.analysis.errors(this.xmir, locator));
+            // @checkstyle IllegalCatchCheck (1 line)
+            } catch (final Exception ex) {
+                results = new ListOf<Result>(
+                    new Result.Failed(this.type, ex, this.type.getName())
+                );
+            }
+            all.put(locator, results);
+        }
+        return all;
+    }
+
+    /**
+     * Run the analyzer with objects one by one, each in another thread,
+     * waiting for each of them until its deadline.
+     * @return Results, by locators
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private Map<String, List<Result>> limited() throws InterruptedException {
+        final Map<String, List<Result>> results = new LinkedHashMap<>(this.locators.size());
+        for (final String locator : this.locators) {
+            results.put(locator, new ListOf<>(this.limited(locator)));
+        }
+        return results;
+    }
+
+    /**
+     * Retrieve XMIR of the object, then run the analyzer with it
+     * in another thread and wait until the deadline.
+     * @param locator Locator of the object
+     * @return Results
+     * @throws InterruptedException If interrupted while waiting
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Iterable<Result> limited(final String locator) throws InterruptedException {
+        Iterable<Result> results;
+        try {
+            this.xmir.apply(locator);
+            results = this.deadline(locator);
+        } catch (final InterruptedException ex) {
+            throw ex;
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            results = new ListOf<Result>(
+                new Result.Failed(this.type, ex, this.type.getName())
+            );
+        }
+        return results;
+    }
+
+    /**
+     * Run the analyzer with the object in another thread and wait until
+     * the deadline.
+     * @param locator Locator of the object
+     * @return Results
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private Iterable<Result> deadline(final String locator) throws InterruptedException {
+        final Future<Iterable<Result>> future = Task.RUNNERS.submit(
+            () -> new ListOf<>(this.analysis.errors(this.xmir, locator))
+        );
+        Iterable<Result> results;
+        try {
+            results = future.get(this.millis, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException ex) {
+            future.cancel(true);
+            results = new ListOf<Result>(
+                new Result.TimedOut(this.type, locator, this.millis)
+            );
+        } catch (final InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ex;
+        } catch (final ExecutionException ex) {
+            Throwable cause = ex;
+            if (ex.getCause() instanceof Exception) {
+                cause = ex.getCause();
+            }
+            results = new ListOf<Result>(
+                new Result.Failed(this.type, cause, this.type.getName())
+            );
+        }
+        return results;
+    }
+
+    /**
+     * All results, in the order of objects.
+     * @param results Results, by locators
+     * @return Results
+     */
+    private static List<Result> flat(final Map<String, List<Result>> results) {
+        final List<Result> all = new ArrayList<>(0);
+        for (final List<Result> list : results.values()) {
+            all.addAll(list);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Secret, which a {@link Client} proves to a {@link Daemon} that it
+ * runs on behalf of the same user.
+ *
+ * <p>The daemon issues a new random secret, when it starts, into a file
+ * that only its owner may read, and the client reads it from there.
+ * Anyone else on the machine may connect to the port of the daemon,
+ * but can't make it read or write files, without the secret.</p>
+ *
+ * @since 1.0
+ */
+final class Token {
+
+    /**
+     * Random bytes in the secret.
+     */
+    private static final int BYTES = 32;
+
+    /**
+     * The file with the secret.
+     */
+    private final Path file;
+
+    /**
+     * Ctor.
+     * @param port Port of the daemon, which defines the file with the secret
+     */
+    Token(final int port) {
+        this(
+            Paths.get(
+                System.getProperty("user.home"), ".polystat",
+                String.format("daemon-%d.token", port)
+            )
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param path The file with the secret
+     */
+    Token(final Path path) {
+        this.file = path;
+    }
+
+    /**
+     * Make a new secret and save it into a new file, which only
+     * the owner may read and write, and which is deleted when
+     * the JVM stops.
+     * @return The secret
+     * @throws IOException If fails
+     */
+    public String issue() throws IOException {
+        final byte[] bytes = new byte[Token.BYTES];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder hex = new StringBuilder(Token.BYTES * 2);
+        for (final byte part : bytes) {
+            hex.append(String.format("%02x", part));
+        }
+        final String secret = hex.toString();
+        Files.createDirectories(this.file.toAbsolutePath().getParent());
+        Files.deleteIfExists(this.file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(
+                this.file,
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+            );
+        } else {
+            Files.createFile(this.file);
+            final File plain = this.file.toFile();
+            if (!plain.setReadable(false, false) || !plain.setReadable(true, true)
+                || !plain.setWritable(false, false) || !plain.setWritable(true, true)) {
+                throw new IOException(
+                    String.format("Can't make %s private to its owner", this.file)
+                );
+            }
+        }
+        Files.write(this.file, secret.getBytes(StandardCharsets.UTF_8));
+        this.file.toFile().deleteOnExit();
+        return secret;
+    }
+
+    /**
+     * Read the secret, issued by the daemon.
+     * @return The secret
+     * @throws IOException If there is no secret
+     */
+    public String read() throws IOException {
+        return new String(Files.readAllBytes(this.file), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Forget the secret, when the daemon stops.
+     * @throws IOException If fails
+     */
+    public void revoke() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    /**
+     * Is it the secret, compared in constant time?
+     * @param secret The secret
+     * @param candidate What the client sent
+     * @return TRUE if it is
+     */
+    public static boolean same(final String secret, final String candidate) {
+        return MessageDigest.isEqual(
+            secret.getBytes(StandardCharsets.UTF_8),
+            candidate.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    @Override
+    public String toString() {
+        return this.file.toString();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes of EO sources in a directory tree.
+ *
+ * <p>Events come in bursts, when an editor saves a file in a few steps or
+ * when many files are checked out at once. A burst ends when the tree
+ * stays quiet for a while, and the whole burst is reported as one
+ * change. Directories created in the tree are watched too.</p>
+ *
+ * @since 1.0
+ */
+final class Watch implements Closeable {
+
+    /**
+     * Extension of EO sources.
+     */
+    private static final String EXT = ".eo";
+
+    /**
+     * Root of the tree.
+     */
+    private final Path root;
+
+    /**
+     * Milliseconds of silence that end a burst.
+     */
+    private final long quiet;
+
+    /**
+     * The service, which is registered with all directories of the tree.
+     */
+    private final WatchService service;
+
+    /**
+     * Watched directories, by their keys.
+     */
+    private final Map<WatchKey, Path> dirs;
+
+    /**
+     * Ctor.
+     * @param root Root of the tree to watch
+     * @throws IOException If can't watch it
+     */
+    Watch(final Path root) throws IOException {
+        // @checkstyle MagicNumber (1 line)
+        this(root, 300L);
+    }
+
+    /**
+     * Ctor.
+     * @param root Root of the tree to watch
+     * @param quiet Milliseconds of silence that end a burst
+     * @throws IOException If can't watch it
+     */
+    Watch(final Path root, final long quiet) throws IOException {
+        this.root = root;
+        this.quiet = quiet;
+        this.service = root.getFileSystem().newWatchService();
+        this.dirs = new ConcurrentHashMap<>(0);
+        this.register(root, new TreeSet<>());
+    }
+
+    /**
+     * Wait for the next burst of changes of EO sources.
+     * @return Keys of changed, created and deleted sources, see
+     *  {@link Sources#key(Path)}
+     * @throws IOException If fails to watch new directories
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public Set<String> changes() throws IOException, InterruptedException {
+        final Set<String> keys = new TreeSet<>();
+        while (keys.isEmpty()) {
+            WatchKey key = this.service.take();
+            while (key != null) {
+                final Path dir = this.dirs.get(key);
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        this.register(this.root, keys);
+                    } else {
+                        this.changed(dir.resolve((Path) event.context()), event, keys);
+                    }
+                }
+                if (!key.reset()) {
+                    this.dirs.remove(key);
+                }
+                key = this.service.poll(this.quiet, TimeUnit.MILLISECONDS);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.service.close();
+    }
+
+    /**
+     * Handle the change of one file.
+     * @param file The file
+     * @param event The event
+     * @param keys Where to add keys of changed sources
+     * @throws IOException If fails to watch a new directory
+     */
+    private void changed(final Path file, final WatchEvent<?> event,
+        final Set<String> keys) throws IOException {
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+            && Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+            this.register(file, keys);
+        } else if (file.getFileName().toString().endsWith(Watch.EXT)) {
+            keys.add(Sources.key(this.root.relativize(file)));
+        }
+    }
+
+    /**
+     * Watch the directory and all directories in it, and collect keys of
+     * all sources in them.
+     * @param top The directory
+     * @param keys Where to add keys of sources
+     * @throws IOException If fails
+     */
+    private void register(final Path top, final Set<String> keys) throws IOException {
+        Files.walkFileTree(
+            top,
+            new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir,
+                    final BasicFileAttributes attrs) throws IOException {
+                    Watch.this.dirs.put(
+                        dir.register(
+                            Watch.this.service,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE
+                        ),
+                        dir
+                    );
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file,
+                    final BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(Watch.EXT)) {
+                        keys.add(Sources.key(Watch.this.root.relativize(file)));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            }
+        );
+    }
+}
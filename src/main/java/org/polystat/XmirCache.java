@@ -0,0 +1,480 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Parsed XMIR documents with their {@link Index} of objects,
+ * shared by all analyzers of the process.
+ *
+ * <p>A document is kept in memory until its file changes on disk or until
+ * it is evicted as the least recently used one, when the total size
+ * of the cached documents exceeds the budget. The size of a document
+ * is the size of its {@code .xml} file in bytes, so the budget counts
+ * bytes on disk, while the DOM of a document takes several times more
+ * memory than its file.</p>
+ *
+ * <p>A document compiled in memory is kept by the path of its future
+ * file, together with the fingerprint of its source, and is reused while
+ * the fingerprint stays the same, no matter whether the file exists.
+ * Until it is saved, it may be pinned: a pinned document is never
+ * evicted and doesn't count against the budget, since it can't be
+ * loaded from disk and would be compiled again otherwise.</p>
+ *
+ * <p>Documents are parsed with deferred node expansion turned off,
+ * so that their DOM is complete right after parsing. It is still
+ * not safe for concurrent reading, that is why {@link Index} hands
+ * out XMIR, which is read by one thread at a time. A file missing
+ * in the cache is parsed once, even if many threads ask for it
+ * at the same time: the others wait and get the same document.</p>
+ *
+ * @since 1.0
+ * @checkstyle AbbreviationAsWordInNameCheck (5 lines)
+ */
+final class XmirCache {
+
+    /**
+     * Maximum total size of cached documents, in bytes of their files.
+     */
+    private final long budget;
+
+    /**
+     * Cached documents, the least recently used first.
+     */
+    private final Map<Path, XmirCache.Entry> entries;
+
+    /**
+     * Total size of cached documents, which are not pinned, in bytes.
+     */
+    private long weight;
+
+    /**
+     * Total size of pinned documents, in bytes.
+     */
+    private long pinned;
+
+    /**
+     * Parsing of files in progress.
+     */
+    private final SingleFlight flights;
+
+    /**
+     * How many times a document was found in the cache.
+     */
+    private final AtomicLong hit;
+
+    /**
+     * How many times a document had to be parsed.
+     */
+    private final AtomicLong miss;
+
+    /**
+     * Ctor.
+     * @param bytes Maximum total size of cached documents, in bytes of their files
+     */
+    XmirCache(final long bytes) {
+        this.budget = bytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.flights = new SingleFlight(16);
+        this.hit = new AtomicLong();
+        this.miss = new AtomicLong();
+    }
+
+    /**
+     * Get the parsed document of the given file.
+     * @param file The {@code .xml} file
+     * @return The document
+     * @throws IOException If fails to read or parse the file
+     */
+    public XML xml(final Path file) throws IOException {
+        return this.index(file).xml();
+    }
+
+    /**
+     * Get the index of objects of the given file.
+     * @param file The {@code .xml} file, or binary XMIR, if its
+     *  extension is {@link BinaryXmir#EXTENSION}
+     * @return The index
+     * @throws IOException If fails to read or parse the file
+     */
+    public Index index(final Path file) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final long size = Files.size(key);
+        final String version = String.format(
+            "%d@%d", size, Files.getLastModifiedTime(key).toMillis()
+        );
+        final XmirCache.Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(key);
+        }
+        final Index index;
+        if (entry != null && entry.fresh(version)) {
+            this.hit.incrementAndGet();
+            index = entry.index();
+        } else {
+            index = this.load(key, size, version);
+        }
+        return index;
+    }
+
+    /**
+     * Get the index of objects of the document, which was compiled
+     * in memory from the source with the given fingerprint.
+     * @param file The {@code .xml} file the document belongs to
+     * @param print Fingerprint of the source
+     * @return The index, if it is in the cache
+     */
+    public Optional<Index> compiled(final Path file, final String print) {
+        final XmirCache.Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(file.toAbsolutePath().normalize());
+        }
+        final Optional<Index> found;
+        if (entry != null && entry.fresh(print)) {
+            this.hit.incrementAndGet();
+            found = Optional.of(entry.index());
+        } else {
+            found = Optional.empty();
+        }
+        return found;
+    }
+
+    /**
+     * Parse the document, compiled in memory, and keep it, unless it
+     * is bigger than the budget.
+     * @param file The {@code .xml} file the document belongs to
+     * @param print Fingerprint of the source
+     * @param xmir Content of the document
+     * @return The index
+     * @throws IOException If fails to parse the document
+     */
+    public Index put(final Path file, final String print, final byte[] xmir)
+        throws IOException {
+        return this.put(file, print, xmir, false);
+    }
+
+    /**
+     * Parse the document, compiled in memory, and keep it. If it
+     * is pinned, it is kept until it is unpinned or replaced, otherwise
+     * unless it is bigger than the budget.
+     * @param file The {@code .xml} file the document belongs to
+     * @param print Fingerprint of the source
+     * @param xmir Content of the document
+     * @param pin Pin it, because it is not saved to the file yet
+     * @return The index
+     * @throws IOException If fails to parse the document
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Index put(final Path file, final String print, final byte[] xmir,
+        final boolean pin) throws IOException {
+        this.miss.incrementAndGet();
+        final Path key = file.toAbsolutePath().normalize();
+        final XmirCache.Entry entry = new XmirCache.Entry(
+            XmirCache.parse(new InputSource(new ByteArrayInputStream(xmir)), key),
+            xmir.length, print, pin
+        );
+        this.put(key, entry);
+        return entry.index();
+    }
+
+    /**
+     * Let the document be evicted, since it is saved to the file now,
+     * unless it was replaced by a newer one meanwhile.
+     * @param file The {@code .xml} file the document belongs to
+     * @param print Fingerprint of the source it was compiled from
+     */
+    public void unpin(final Path file, final String print) {
+        final Path key = file.toAbsolutePath().normalize();
+        synchronized (this.entries) {
+            final XmirCache.Entry entry = this.entries.get(key);
+            if (entry != null && entry.pinned() && entry.fresh(print)) {
+                this.put(key, entry.unpinned());
+            }
+        }
+    }
+
+    /**
+     * How many times a document was found in the cache.
+     * @return The number of hits
+     */
+    public long hits() {
+        return this.hit.get();
+    }
+
+    /**
+     * How many times a document had to be parsed.
+     * @return The number of misses
+     */
+    public long misses() {
+        return this.miss.get();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this.entries) {
+            return String.format(
+                "%d XMIR document(s) of %d byte(s) cached, %d byte(s) pinned, %d hit(s), %s",
+                this.entries.size(), this.weight + this.pinned, this.pinned,
+                this.hits(), String.format("%d miss(es)", this.misses())
+            );
+        }
+    }
+
+    /**
+     * Put the entry into the cache and evict the least recently used
+     * entries, which are not pinned, until the budget is respected.
+     * @param key The path of the file
+     * @param entry The entry
+     */
+    private void put(final Path key, final XmirCache.Entry entry) {
+        synchronized (this.entries) {
+            final XmirCache.Entry before = this.entries.remove(key);
+            if (before != null && before.pinned()) {
+                this.pinned -= before.size();
+            } else if (before != null) {
+                this.weight -= before.size();
+            }
+            if (entry.pinned()) {
+                this.entries.put(key, entry);
+                this.pinned += entry.size();
+            } else if (entry.size() <= this.budget) {
+                this.entries.put(key, entry);
+                this.weight += entry.size();
+            }
+            final Iterator<XmirCache.Entry> iter = this.entries.values().iterator();
+            while (this.weight > this.budget && iter.hasNext()) {
+                final XmirCache.Entry next = iter.next();
+                if (!next.pinned()) {
+                    this.weight -= next.size();
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the file and keep it, once for all threads, which ask
+     * for the same file at the same time. The threads, which waited
+     * for another one, count as hits.
+     * @param key The absolute path of the file
+     * @param size Size of the file, in bytes
+     * @param version Version of the file
+     * @return The index
+     * @throws IOException If fails to read or parse the file
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Index load(final Path key, final long size, final String version)
+        throws IOException {
+        final AtomicBoolean mine = new AtomicBoolean();
+        final Index index;
+        try {
+            index = this.flights.run(
+                key.toString(),
+                () -> {
+                    mine.set(true);
+                    XmirCache.Entry entry;
+                    synchronized (this.entries) {
+                        entry = this.entries.get(key);
+                    }
+                    if (entry != null && entry.fresh(version)) {
+                        this.hit.incrementAndGet();
+                    } else {
+                        this.miss.incrementAndGet();
+                        entry = new XmirCache.Entry(XmirCache.parse(key), size, version);
+                        this.put(key, entry);
+                    }
+                    return entry.index();
+                }
+            );
+        } catch (final IOException | RuntimeException ex) {
+            throw ex;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        // @checkstyle IllegalCatchCheck (1 line)
+        } catch (final Exception ex) {
+            throw new IOException(ex);
+        }
+        if (!mine.get()) {
+            this.hit.incrementAndGet();
+        }
+        return index;
+    }
+
+    /**
+     * Parse the file, either XML or binary XMIR.
+     * @param key The absolute path of the file
+     * @return Index of the document
+     * @throws IOException If fails
+     */
+    private static Index parse(final Path key) throws IOException {
+        final Index index;
+        if (key.getFileName().toString().endsWith(BinaryXmir.EXTENSION)) {
+            try (InputStream input = Files.newInputStream(key)) {
+                index = new Index(BinaryXmir.decode(input));
+            }
+        } else {
+            index = XmirCache.parse(new InputSource(key.toUri().toString()), key);
+        }
+        return index;
+    }
+
+    /**
+     * Parse the document into a fully expanded DOM.
+     * @param input The document
+     * @param file The file of the document, for error messages
+     * @return Index of the document
+     * @throws IOException If fails
+     */
+    private static Index parse(final InputSource input, final Path file)
+        throws IOException {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            factory.setFeature(
+                "http://apache.org/xml/features/dom/defer-node-expansion", false
+            );
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            return new Index(builder.parse(input));
+        } catch (final ParserConfigurationException | SAXException ex) {
+            throw new IOException(
+                String.format("Can't parse XMIR in %s", file), ex
+            );
+        }
+    }
+
+    /**
+     * A cached document together with its version: the size and the
+     * modification time of its file, or the fingerprint of its source,
+     * and whether it is pinned.
+     *
+     * @since 1.0
+     */
+    private static final class Entry {
+
+        /**
+         * Index of the document.
+         */
+        private final Index idx;
+
+        /**
+         * Size of the document, in bytes.
+         */
+        private final long bytes;
+
+        /**
+         * Version of the document.
+         */
+        private final String version;
+
+        /**
+         * Is it pinned?
+         */
+        private final boolean pin;
+
+        /**
+         * Ctor.
+         * @param index Index of the document
+         * @param size Size of the document, in bytes
+         * @param ver Version of the document
+         */
+        Entry(final Index index, final long size, final String ver) {
+            this(index, size, ver, false);
+        }
+
+        /**
+         * Ctor.
+         * @param index Index of the document
+         * @param size Size of the document, in bytes
+         * @param ver Version of the document
+         * @param pin Is it pinned
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        Entry(final Index index, final long size, final String ver,
+            final boolean pin) {
+            this.idx = index;
+            this.bytes = size;
+            this.version = ver;
+            this.pin = pin;
+        }
+
+        /**
+         * Index of the document.
+         * @return The index
+         */
+        Index index() {
+            return this.idx;
+        }
+
+        /**
+         * Size of the document.
+         * @return Size in bytes
+         */
+        long size() {
+            return this.bytes;
+        }
+
+        /**
+         * Is it still the same version of the document?
+         * @param ver Current version
+         * @return TRUE if the document may be reused
+         */
+        boolean fresh(final String ver) {
+            return this.version.equals(ver);
+        }
+
+        /**
+         * Is it pinned?
+         * @return TRUE if it may not be evicted
+         */
+        boolean pinned() {
+            return this.pin;
+        }
+
+        /**
+         * The same entry, which may be evicted.
+         * @return Entry
+         */
+        XmirCache.Entry unpinned() {
+            return new XmirCache.Entry(this.idx, this.bytes, this.version);
+        }
+    }
+}
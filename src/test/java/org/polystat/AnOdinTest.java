@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.cactoos.Func;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link AnOdin}.
+ *
+ * @since 1.0
+ */
+final class AnOdinTest {
+
+    @Test
+    void findsSameDefectsInBatch(@TempDir final Path temp) throws Exception {
+        final Func<String, XML> xmir = new Program(Paths.get("sandbox"), temp);
+        final List<String> locators = new ListOf<>(
+            "\\Phi.sandbox.derived", "\\Phi.sandbox.mutual_rec", "\\Phi.test"
+        );
+        final Map<String, Iterable<Result>> batch = new AnOdin().errors(xmir, locators);
+        final List<String> single = new ArrayList<>(locators.size());
+        final List<String> together = new ArrayList<>(locators.size());
+        for (final String locator : locators) {
+            single.add(AnOdinTest.printed(new AnOdin().errors(xmir, locator)));
+            together.add(AnOdinTest.printed(batch.get(locator)));
+        }
+        MatcherAssert.assertThat(together, Matchers.equalTo(single));
+        MatcherAssert.assertThat(single.get(0), Matchers.containsString("derived.g"));
+    }
+
+    /**
+     * Print results.
+     * @param results The results
+     * @return Rule ids and defects
+     */
+    private static String printed(final Iterable<Result> results) {
+        return StreamSupport.stream(results.spliterator(), false)
+            .map(res -> String.format("%s: %s", res.ruleId(), new ListOf<>(res)))
+            .collect(Collectors.joining("; "));
+    }
+}
@@ -25,7 +25,13 @@
 package org.polystat;
 
 import com.jcabi.manifests.Manifests;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.json.Json;
+import javax.json.JsonObject;
 import org.cactoos.iterable.IterableOf;
 import org.cactoos.iterable.Repeated;
 import org.cactoos.list.ListOf;
@@ -33,6 +39,7 @@ import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Test for {@link AsSarif}.
@@ -90,6 +97,50 @@ final class AsSarifTest {
         );
     }
 
+    @Test
+    void streamsValidLogOfManyResults() {
+        final int total = 1000;
+        final JsonObject run = Json.createReader(
+            new StringReader(
+                new AsSarif(
+                    new Repeated<>(
+                        total,
+                        new Result.Completed(
+                            Analysis.class,
+                            new ListOf<>("error"),
+                            AsSarifTest.SAMPLE_RULEID
+                        )
+                    )
+                ).get()
+            )
+        ).readObject().getJsonArray("runs").getJsonObject(0);
+        MatcherAssert.assertThat(
+            run.getJsonArray("invocations").size(),
+            Matchers.equalTo(total)
+        );
+        MatcherAssert.assertThat(
+            run.getJsonArray("results").size(),
+            Matchers.equalTo(total)
+        );
+    }
+
+    @Test
+    void deletesSpillFile(@TempDir final Path temp) throws Exception {
+        new AsSarif(
+            new IterableOf<>(
+                new Result.Completed(
+                    Analysis.class,
+                    new ListOf<>("w"),
+                    AsSarifTest.SAMPLE_RULEID
+                )
+            ),
+            temp
+        ).get();
+        try (Stream<Path> files = Files.list(temp)) {
+            MatcherAssert.assertThat(files.count(), Matchers.equalTo(0L));
+        }
+    }
+
     @Test
     void addsResultsWithRuleId() {
         final List<String> errors = new ListOf<>("a", "b", "c");
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XMLDocument;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.cactoos.io.ResourceOf;
+import org.cactoos.io.TeeInput;
+import org.cactoos.scalar.LengthOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link BinaryXmir}.
+ *
+ * @since 1.0
+ */
+final class BinaryXmirTest {
+
+    @Test
+    void decodesWhatItEncodes(@TempDir final Path temp) throws Exception {
+        new LengthOf(
+            new TeeInput(new ResourceOf("org/polystat/test.eo"), temp.resolve("test.eo"))
+        ).value();
+        new Program(temp, temp).apply("\\Phi.test");
+        final byte[] xml = Files.readAllBytes(temp.resolve("test.xml"));
+        for (final boolean deflate : new boolean[] {false, true}) {
+            final byte[] bin = BinaryXmir.encode(xml, deflate);
+            MatcherAssert.assertThat(bin.length, Matchers.lessThan(xml.length));
+            MatcherAssert.assertThat(
+                new XMLDocument(BinaryXmir.decode(new ByteArrayInputStream(bin))).toString(),
+                Matchers.equalTo(new XMLDocument(xml).toString())
+            );
+        }
+    }
+
+    @Test
+    void loadsProgramFromBinary(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("src");
+        new LengthOf(
+            new TeeInput(new ResourceOf("org/polystat/test.eo"), src.resolve("test.eo"))
+        ).value();
+        final Path tmp = temp.resolve("tmp");
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                new Program(
+                    src, tmp, new XmirCache(1L << 20), () -> new Sources(src).programs(),
+                    new Metrics(), Program.Persist.SYNC, Program.Format.DEFLATED
+                ).apply("\\Phi.test.fv").xpath("@name").get(0),
+                Matchers.equalTo("fv")
+            );
+        }
+        MatcherAssert.assertThat(
+            Files.exists(tmp.resolve("test.xmb")),
+            Matchers.is(true)
+        );
+    }
+}
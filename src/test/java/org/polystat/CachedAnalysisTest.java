@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.cactoos.Func;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link CachedAnalysis}.
+ *
+ * @since 1.0
+ */
+final class CachedAnalysisTest {
+
+    /**
+     * XMIR of any object.
+     */
+    private static final Func<String, XML> XMIR =
+        locator -> new XMLDocument("<o name='a'><o name='b'/></o>");
+
+    /**
+     * XMIR of an object named after its locator.
+     */
+    private static final Func<String, XML> NAMED =
+        locator -> new XMLDocument(
+            String.format("<o name='%s'/>", locator.substring(locator.indexOf('.') + 1))
+        );
+
+    @Test
+    void reportsResultsWhenCacheCantBeWritten(@TempDir final Path temp) throws Exception {
+        final Path file = Files.createFile(temp.resolve("file"));
+        final List<Result> found = new ListOf<>(
+            new CachedAnalysis(
+                CachedAnalysisTest.analysis(new AtomicInteger()), "1",
+                new Hierarchy(), new ResultCache(file.resolve("tmp")), new Metrics()
+            ).errors(CachedAnalysisTest.XMIR, "\\Phi.a")
+        );
+        MatcherAssert.assertThat(found, Matchers.hasSize(1));
+        MatcherAssert.assertThat(found.get(0).failure().isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(found.get(0), Matchers.contains("found"));
+    }
+
+    @Test
+    void analyzesAgainWithAnotherVersion(@TempDir final Path temp) throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final ResultCache cache = new ResultCache(temp);
+        for (final String version : new String[] {"far 1", "far 1", "far 2"}) {
+            new CachedAnalysis(
+                CachedAnalysisTest.analysis(runs), version,
+                new Hierarchy(), cache, new Metrics()
+            ).errors(CachedAnalysisTest.XMIR, "\\Phi.a");
+        }
+        MatcherAssert.assertThat(runs.get(), Matchers.equalTo(2));
+    }
+
+    @Test
+    void keepsCachedResultsWhenBatchFails(@TempDir final Path temp) throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final ResultCache cache = new ResultCache(temp);
+        final Analysis broken = new Analysis() {
+            @Override
+            public Iterable<Result> errors(final Func<String, XML> xmir,
+                final String locator) throws Exception {
+                return CachedAnalysisTest.analysis(runs).errors(xmir, locator);
+            }
+
+            @Override
+            public Map<String, Iterable<Result>> errors(final Func<String, XML> xmir,
+                final Collection<String> locators) {
+                throw new IllegalStateException("Can't analyze them together");
+            }
+        };
+        new CachedAnalysis(broken, "1", new Hierarchy(), cache, new Metrics())
+            .errors(CachedAnalysisTest.NAMED, "\\Phi.a");
+        final Map<String, Iterable<Result>> found = new CachedAnalysis(
+            broken, "1", new Hierarchy(), cache, new Metrics()
+        ).errors(CachedAnalysisTest.NAMED, new ListOf<>("\\Phi.a", "\\Phi.b"));
+        MatcherAssert.assertThat(
+            new ListOf<>(found.get("\\Phi.a")).get(0), Matchers.contains("found")
+        );
+        MatcherAssert.assertThat(
+            new ListOf<>(found.get("\\Phi.b")).get(0), Matchers.contains("found")
+        );
+        MatcherAssert.assertThat(runs.get(), Matchers.equalTo(2));
+    }
+
+    @Test
+    void failsObjectsMissingInBatch(@TempDir final Path temp) throws Exception {
+        final Analysis forgetful = new Analysis() {
+            @Override
+            public Iterable<Result> errors(final Func<String, XML> xmir,
+                final String locator) {
+                return new ListOf<>();
+            }
+
+            @Override
+            public Map<String, Iterable<Result>> errors(final Func<String, XML> xmir,
+                final Collection<String> locators) {
+                return Collections.emptyMap();
+            }
+        };
+        final Map<String, Iterable<Result>> found = new CachedAnalysis(
+            forgetful, "1", new Hierarchy(), new ResultCache(temp), new Metrics()
+        ).errors(CachedAnalysisTest.NAMED, new ListOf<>("\\Phi.a", "\\Phi.b"));
+        MatcherAssert.assertThat(
+            found.get("\\Phi.b").iterator().next().failure().isPresent(),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Analysis that finds one error and counts its runs.
+     * @param runs Where to count
+     * @return Analysis
+     */
+    private static Analysis analysis(final AtomicInteger runs) {
+        return (xmir, locator) -> {
+            runs.incrementAndGet();
+            return new ListOf<Result>(
+                new Result.Completed(AnFaR.class, new ListOf<>("found"), "DIV0")
+            );
+        };
+    }
+}
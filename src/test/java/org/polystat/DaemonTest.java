@@ -0,0 +1,296 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.cactoos.io.ResourceOf;
+import org.cactoos.io.TeeInput;
+import org.cactoos.scalar.LengthOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Daemon}.
+ *
+ * @since 1.0
+ */
+final class DaemonTest {
+
+    @Test
+    void answersRequestsRelativeToClientDirectory(@TempDir final Path temp)
+        throws Exception {
+        DaemonTest.sources(temp);
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (
+            Analyzers analyzers = new Analyzers();
+            ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        ) {
+            thread.submit(
+                () -> {
+                    new Daemon(analyzers, 64L).serve(server, "secret");
+                    return null;
+                }
+            );
+            final long[] misses = new long[2];
+            for (int idx = 0; idx < 2; ++idx) {
+                MatcherAssert.assertThat(
+                    DaemonTest.request(
+                        server.getLocalPort(),
+                        String.format(
+                            "secret\n%s\n--files\nsrc\n--tmp\ntmp\n--metrics\nm%d.json\n\n",
+                            temp, idx
+                        )
+                    ),
+                    Matchers.allOf(
+                        Matchers.containsString("\\perp"),
+                        Matchers.endsWith(String.format("\n%s0\n", Daemon.EXIT))
+                    )
+                );
+                final JsonObject xmir;
+                try (
+                    JsonReader json = Json.createReader(
+                        Files.newBufferedReader(temp.resolve(String.format("m%d.json", idx)))
+                    )
+                ) {
+                    xmir = json.readObject().getJsonObject("caches").getJsonObject("xmir");
+                }
+                misses[idx] = xmir.getJsonNumber("misses").longValue();
+                if (idx > 0) {
+                    MatcherAssert.assertThat(
+                        xmir.getJsonNumber("hits").longValue(), Matchers.greaterThan(0L)
+                    );
+                }
+            }
+            MatcherAssert.assertThat(misses[1], Matchers.equalTo(misses[0]));
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void sharesTempDirectoryOfRequestsWithoutTmp(@TempDir final Path temp)
+        throws Exception {
+        DaemonTest.sources(temp);
+        final Path home = temp.resolve("home");
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (
+            Analyzers analyzers = new Analyzers();
+            ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        ) {
+            thread.submit(
+                () -> {
+                    new Daemon(analyzers, 64L, home).serve(server, "secret");
+                    return null;
+                }
+            );
+            for (int idx = 0; idx < 2; ++idx) {
+                DaemonTest.request(
+                    server.getLocalPort(),
+                    String.format("secret\n%s\n--files\nsrc\n--metrics\nm%d.json\n\n", temp, idx)
+                );
+            }
+            final JsonObject results;
+            try (
+                JsonReader json = Json.createReader(
+                    Files.newBufferedReader(temp.resolve("m1.json"))
+                )
+            ) {
+                results = json.readObject().getJsonObject("caches").getJsonObject("results");
+            }
+            MatcherAssert.assertThat(
+                results.getJsonNumber("misses").longValue(), Matchers.equalTo(0L)
+            );
+            try (Stream<Path> dirs = Files.list(home)) {
+                MatcherAssert.assertThat(dirs.count(), Matchers.equalTo(1L));
+            }
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void answersWithExitStatusOfRequest(@TempDir final Path temp) throws Exception {
+        DaemonTest.sources(temp);
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (
+            Analyzers analyzers = new Analyzers();
+            ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        ) {
+            thread.submit(
+                () -> {
+                    new Daemon(analyzers, 64L).serve(server, "secret");
+                    return null;
+                }
+            );
+            MatcherAssert.assertThat(
+                DaemonTest.request(
+                    server.getLocalPort(),
+                    String.format("secret\n%s\n--files\nsrc\n--unknown\n\n", temp)
+                ),
+                Matchers.allOf(
+                    Matchers.containsString("--unknown"),
+                    Matchers.endsWith(String.format("\n%s2\n", Daemon.EXIT))
+                )
+            );
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsRequestsToWatch(@TempDir final Path temp) throws Exception {
+        DaemonTest.sources(temp);
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (
+            Analyzers analyzers = new Analyzers();
+            ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        ) {
+            thread.submit(
+                () -> {
+                    new Daemon(analyzers, 64L).serve(server, "secret");
+                    return null;
+                }
+            );
+            MatcherAssert.assertThat(
+                DaemonTest.request(
+                    server.getLocalPort(),
+                    String.format(
+                        "secret\n%s\n--files\nsrc\n--watch\n--output\nout.txt\n\n", temp
+                    )
+                ),
+                Matchers.allOf(
+                    Matchers.containsString("doesn't watch"),
+                    Matchers.endsWith(String.format("\n%s2\n", Daemon.EXIT))
+                )
+            );
+            MatcherAssert.assertThat(
+                Files.exists(temp.resolve("out.txt")), Matchers.is(false)
+            );
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsRequestsWithWrongToken(@TempDir final Path temp) throws Exception {
+        DaemonTest.sources(temp);
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (
+            Analyzers analyzers = new Analyzers();
+            ServerSocket server = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        ) {
+            thread.submit(
+                () -> {
+                    new Daemon(analyzers, 64L).serve(server, "secret");
+                    return null;
+                }
+            );
+            MatcherAssert.assertThat(
+                DaemonTest.request(
+                    server.getLocalPort(),
+                    String.format("guess\n%s\n--files\nsrc\n--output\nout.txt\n\n", temp)
+                ),
+                Matchers.containsString("Wrong token")
+            );
+            MatcherAssert.assertThat(
+                Files.exists(temp.resolve("out.txt")), Matchers.is(false)
+            );
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void issuesTokenOnlyOwnerMayRead(@TempDir final Path temp) throws Exception {
+        final Token token = new Token(temp.resolve("daemon.token"));
+        final String secret = token.issue();
+        MatcherAssert.assertThat(token.read(), Matchers.equalTo(secret));
+        Assumptions.assumeTrue(
+            FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+        );
+        MatcherAssert.assertThat(
+            PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(temp.resolve("daemon.token"))
+            ),
+            Matchers.equalTo("rw-------")
+        );
+    }
+
+    /**
+     * Put sources into the directory.
+     * @param temp The directory
+     * @throws Exception If fails
+     */
+    private static void sources(final Path temp) throws Exception {
+        Files.createDirectories(temp.resolve("src"));
+        new LengthOf(
+            new TeeInput(
+                new ResourceOf("org/polystat/test.eo"),
+                temp.resolve("src/test.eo")
+            )
+        ).value();
+    }
+
+    /**
+     * Send the request to the daemon and read the answer.
+     * @param port Port of the daemon
+     * @param request The request
+     * @return The answer
+     * @throws Exception If fails
+     */
+    private static String request(final int port, final String request) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final OutputStream output = socket.getOutputStream();
+            output.write(request.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            socket.shutdownOutput();
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream answer = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            for (int len = input.read(buf); len >= 0; len = input.read(buf)) {
+                answer.write(buf, 0, len);
+            }
+            return new String(answer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
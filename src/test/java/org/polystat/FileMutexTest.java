@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link FileMutex}.
+ *
+ * @since 1.0
+ */
+final class FileMutexTest {
+
+    @Test
+    void keepsOneLockFileInDirectory(@TempDir final Path temp) throws Exception {
+        final int total = 100;
+        for (int idx = 0; idx < total; ++idx) {
+            final Path file = temp.resolve(String.format("f%d.xml", idx));
+            new FileMutex(file).run(() -> Files.write(file, new byte[] {1}));
+        }
+        try (Stream<Path> files = Files.list(temp)) {
+            MatcherAssert.assertThat(files.count(), Matchers.equalTo(total + 1L));
+        }
+    }
+
+    @Test
+    void runsNestedJobsInOneDirectory(@TempDir final Path temp) throws Exception {
+        final int depth = 100;
+        MatcherAssert.assertThat(
+            FileMutexTest.nested(temp, depth),
+            Matchers.equalTo(depth)
+        );
+    }
+
+    @Test
+    void runsJobsOfOneFileOneByOne(@TempDir final Path temp) throws Exception {
+        final int total = 8;
+        final int times = 200;
+        final int[] counter = new int[1];
+        final ExecutorService pool = Executors.newFixedThreadPool(total);
+        try {
+            final Collection<Future<?>> futures = new ArrayList<>(total);
+            for (int thread = 0; thread < total; ++thread) {
+                final Path other = temp.resolve(String.format("other%d", thread));
+                futures.add(
+                    pool.submit(
+                        () -> {
+                            for (int idx = 0; idx < times; ++idx) {
+                                new FileMutex(temp.resolve("counter")).run(
+                                    () -> {
+                                        counter[0] += 1;
+                                        return counter[0];
+                                    }
+                                );
+                                new FileMutex(other).run(() -> other);
+                            }
+                            return null;
+                        }
+                    )
+                );
+            }
+            for (final Future<?> future : futures) {
+                future.get(30L, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        MatcherAssert.assertThat(counter[0], Matchers.equalTo(total * times));
+    }
+
+    /**
+     * Run jobs, every one inside of the previous one, for different
+     * files of one directory.
+     * @param dir The directory
+     * @param depth How many jobs
+     * @return How many jobs ran
+     * @throws IOException If fails
+     */
+    private static int nested(final Path dir, final int depth) throws IOException {
+        final int ran;
+        if (depth == 0) {
+            ran = 0;
+        } else {
+            ran = new FileMutex(dir.resolve(String.format("n%d", depth))).run(
+                () -> FileMutexTest.nested(dir, depth - 1) + 1
+            );
+        }
+        return ran;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Fingerprints}.
+ *
+ * @since 1.0
+ */
+final class FingerprintsTest {
+
+    @Test
+    void seesSourcesCompiledByOthers(@TempDir final Path temp) throws Exception {
+        final Fingerprints mine = new Fingerprints(temp, "1");
+        MatcherAssert.assertThat(mine.compiled("a", "x"), Matchers.is(false));
+        new Fingerprints(temp, "1").compile("a", "x");
+        MatcherAssert.assertThat(mine.compiled("a", "x"), Matchers.is(true));
+    }
+
+    @Test
+    void takesLastLineOfSource(@TempDir final Path temp) throws Exception {
+        final Fingerprints prints = new Fingerprints(temp, "1");
+        prints.compile("a", "x");
+        prints.compile("b", "y");
+        prints.compile("a", "z");
+        final Fingerprints other = new Fingerprints(temp, "1");
+        MatcherAssert.assertThat(other.compiled("a", "z"), Matchers.is(true));
+        MatcherAssert.assertThat(other.compiled("a", "x"), Matchers.is(false));
+    }
+
+    @Test
+    void leavesTornLineForLater(@TempDir final Path temp) throws Exception {
+        final Path file = temp.resolve(Fingerprints.MANIFEST);
+        Files.write(file, "x a\nyy".getBytes(StandardCharsets.UTF_8));
+        final Fingerprints prints = new Fingerprints(temp, "1");
+        MatcherAssert.assertThat(prints.compiled("a", "x"), Matchers.is(true));
+        Files.write(file, "z b\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        MatcherAssert.assertThat(prints.compiled("b", "yyz"), Matchers.is(true));
+        MatcherAssert.assertThat(prints.compiled("a", "x"), Matchers.is(true));
+    }
+
+    @Test
+    void seesSameSizeEditInNextScan(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("a.eo");
+        Files.write(src, "[] > a".getBytes(StandardCharsets.UTF_8));
+        final FileTime modified = Files.getLastModifiedTime(src);
+        final String before = new Fingerprints(temp, "1").of(src);
+        Files.write(src, "[] > b".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(src, modified);
+        MatcherAssert.assertThat(
+            new Fingerprints(temp, "1").of(src),
+            Matchers.not(Matchers.equalTo(before))
+        );
+    }
+
+    @Test
+    void compactsLongManifest(@TempDir final Path temp) throws Exception {
+        final Fingerprints prints = new Fingerprints(temp, "1");
+        for (int idx = 0; idx < 2000; ++idx) {
+            prints.compile("a", String.valueOf(idx));
+        }
+        final Fingerprints other = new Fingerprints(temp, "1");
+        MatcherAssert.assertThat(other.compiled("a", "1999"), Matchers.is(true));
+        MatcherAssert.assertThat(
+            Files.readAllLines(temp.resolve(Fingerprints.MANIFEST)),
+            Matchers.contains("1999 a")
+        );
+        prints.compile("b", "x");
+        MatcherAssert.assertThat(other.compiled("b", "x"), Matchers.is(true));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.Map;
+import org.cactoos.Func;
+import org.cactoos.map.MapEntry;
+import org.cactoos.map.MapOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link Hierarchy}.
+ *
+ * @since 1.0
+ */
+final class HierarchyTest {
+
+    @Test
+    void includesTransitiveDecorateesOnce() throws Exception {
+        final String xml = new Hierarchy().xml(
+            HierarchyTest.objects(
+                new MapEntry<>("top", "middle"),
+                new MapEntry<>("middle", "base"),
+                new MapEntry<>("base", "org.eolang.int")
+            ),
+            "\\Phi.top"
+        );
+        MatcherAssert.assertThat(
+            new XMLDocument(xml).xpath("/objects/o/@name"),
+            Matchers.contains("base", "middle", "top")
+        );
+    }
+
+    @Test
+    void cutsCyclicDecoration() throws Exception {
+        final String xml = new Hierarchy().xml(
+            HierarchyTest.objects(
+                new MapEntry<>("sandbox.first", "sandbox.second"),
+                new MapEntry<>("sandbox.second", "sandbox.first")
+            ),
+            "\\Phi.sandbox.first"
+        );
+        MatcherAssert.assertThat(
+            new XMLDocument(xml).xpath("/objects/o/@name"),
+            Matchers.contains("second", "first")
+        );
+    }
+
+    @Test
+    void listsLocatorsOfHierarchy() throws Exception {
+        MatcherAssert.assertThat(
+            new Hierarchy().locators(
+                HierarchyTest.objects(
+                    new MapEntry<>("top", "middle"),
+                    new MapEntry<>("middle", "org.eolang.int")
+                ),
+                "\\Phi.top"
+            ),
+            Matchers.containsInAnyOrder(
+                "\\Phi.top", "\\Phi.middle", "\\Phi.org.eolang.int"
+            )
+        );
+    }
+
+    @Test
+    void buildsXmlAgainOnlyWhenObjectsChange() throws Exception {
+        final Func<String, XML> origin = HierarchyTest.objects(
+            new MapEntry<>("top", "base"),
+            new MapEntry<>("base", "org.eolang.int")
+        );
+        final Map<String, XML> loaded = new HashMap<>(0);
+        final Func<String, XML> xmir = locator -> {
+            if (!loaded.containsKey(locator)) {
+                loaded.put(locator, origin.apply(locator));
+            }
+            return loaded.get(locator);
+        };
+        final Hierarchy hierarchy = new Hierarchy();
+        final String first = hierarchy.xml(xmir, "\\Phi.top");
+        MatcherAssert.assertThat(
+            hierarchy.xml(xmir, "\\Phi.top"), Matchers.sameInstance(first)
+        );
+        loaded.remove("\\Phi.base");
+        MatcherAssert.assertThat(
+            hierarchy.xml(xmir, "\\Phi.top"),
+            Matchers.not(Matchers.sameInstance(first))
+        );
+    }
+
+    /**
+     * Make objects, each decorating another one.
+     * @param pairs Fully qualified names of objects and bases of their decoratees
+     * @return Function to retrieve XMIR by locator
+     */
+    @SafeVarargs
+    private static Func<String, XML> objects(final Map.Entry<String, String>... pairs) {
+        final Map<String, String> bases = new MapOf<>(pairs);
+        return locator -> {
+            final String name = locator.substring(locator.indexOf('.') + 1);
+            if (!bases.containsKey(name)) {
+                throw new NoSuchFileException(name);
+            }
+            return new XMLDocument(
+                String.format(
+                    "<o name='%s'><o name='@' base='%s'/></o>",
+                    name.substring(name.lastIndexOf('.') + 1), bases.get(name)
+                )
+            ).nodes("/o").get(0);
+        };
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import com.jcabi.xml.XMLDocument;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link Index}.
+ *
+ * @since 1.0
+ */
+final class IndexTest {
+
+    /**
+     * Sample XMIR.
+     */
+    private static final String XMIR = String.join(
+        "",
+        "<program><objects>",
+        "<o name='a' line='1'><o name='b' line='2'><o name='c' line='3'/></o>",
+        "<o name='b' line='4'/></o>",
+        "<o base='x' line='5'/>",
+        "</objects></program>"
+    );
+
+    @Test
+    void findsNestedObjects() {
+        MatcherAssert.assertThat(
+            new Index(new XMLDocument(IndexTest.XMIR).node())
+                .object("a.b.c").xpath("@line").get(0),
+            Matchers.equalTo("3")
+        );
+    }
+
+    @Test
+    void prefersFirstOfSameName() {
+        MatcherAssert.assertThat(
+            new Index(new XMLDocument(IndexTest.XMIR).node())
+                .object("a.b").xpath("@line").get(0),
+            Matchers.equalTo("2")
+        );
+    }
+
+    @Test
+    void failsOnAbsentObject() {
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> new Index(new XMLDocument(IndexTest.XMIR).node()).object("a.x")
+        );
+    }
+
+    @Test
+    void readsObjectsFromManyThreads() throws Exception {
+        final Index index = new Index(new XMLDocument(IndexTest.XMIR).node());
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            final Collection<Callable<Integer>> jobs = new ArrayList<>(8);
+            for (int job = 0; job < 8; ++job) {
+                jobs.add(
+                    () -> {
+                        int total = 0;
+                        for (int idx = 0; idx < 500; ++idx) {
+                            for (final XML kid : index.object("a").nodes("o")) {
+                                total += Integer.parseInt(kid.xpath("@line").get(0));
+                            }
+                        }
+                        return total;
+                    }
+                );
+            }
+            for (final Future<Integer> total : pool.invokeAll(jobs)) {
+                MatcherAssert.assertThat(total.get(), Matchers.equalTo(3000));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
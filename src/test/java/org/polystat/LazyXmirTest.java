@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XMLDocument;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.cactoos.io.ResourceOf;
+import org.cactoos.io.TeeInput;
+import org.cactoos.scalar.LengthOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link LazyXmir}.
+ *
+ * @since 1.0
+ * @checkstyle AbbreviationAsWordInNameCheck (5 lines)
+ */
+final class LazyXmirTest {
+
+    @Test
+    void readsSameObjectsAsIndex(@TempDir final Path temp) throws Exception {
+        new LengthOf(
+            new TeeInput(new ResourceOf("org/polystat/test.eo"), temp.resolve("test.eo"))
+        ).value();
+        new Program(temp, temp).apply("\\Phi.test");
+        final Path xml = temp.resolve("test.xml");
+        final Index index = new XmirCache(1L << 20).index(xml);
+        for (final String path : new String[] {"test", "test.fv"}) {
+            MatcherAssert.assertThat(
+                new LazyXmir(xml).object(path).toString(),
+                Matchers.equalTo(index.object(path).toString())
+            );
+        }
+    }
+
+    @Test
+    void looksIntoNextObjectsOfSameName(@TempDir final Path temp) throws Exception {
+        final Path xml = temp.resolve("a.xml");
+        Files.write(
+            xml,
+            String.join(
+                "",
+                "<program><objects>",
+                "<o name='a' line='1'><o name='b' line='2'/></o>",
+                "<o name='a' line='3'><o name='c' line='4'><o line='5'/></o></o>",
+                "</objects></program>"
+            ).getBytes()
+        );
+        final Index index = new Index(new XMLDocument(xml).node());
+        MatcherAssert.assertThat(
+            new LazyXmir(xml).object("a.c").toString(),
+            Matchers.equalTo(index.object("a.c").toString())
+        );
+        MatcherAssert.assertThat(
+            new LazyXmir(xml).object("a").xpath("@line").get(0),
+            Matchers.equalTo("1")
+        );
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> new LazyXmir(xml).object("a.x")
+        );
+    }
+}
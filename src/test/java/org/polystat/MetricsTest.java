@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Metrics}.
+ *
+ * @since 1.0
+ */
+final class MetricsTest {
+
+    @Test
+    void summarizesStagesInJson() {
+        final Metrics metrics = new Metrics();
+        for (long sec = 1L; sec <= 20L; ++sec) {
+            metrics.record("parse", System.nanoTime() - TimeUnit.SECONDS.toNanos(sec));
+        }
+        metrics.cache("xmir", () -> 3L, () -> 1L);
+        final JsonObject json = Json.createReader(
+            new StringReader(metrics.json())
+        ).readObject();
+        final JsonObject parse = json.getJsonObject("stages").getJsonObject("parse");
+        MatcherAssert.assertThat(parse.getInt("count"), Matchers.equalTo(20));
+        MatcherAssert.assertThat(
+            parse.getJsonNumber("p50_ms").doubleValue(),
+            Matchers.both(Matchers.greaterThanOrEqualTo(10_000.0))
+                .and(Matchers.lessThan(11_000.0))
+        );
+        MatcherAssert.assertThat(
+            parse.getJsonNumber("max_ms").doubleValue(),
+            Matchers.greaterThanOrEqualTo(20_000.0)
+        );
+        MatcherAssert.assertThat(
+            json.getJsonObject("caches").getJsonObject("xmir")
+                .getJsonNumber("hit_rate").doubleValue(),
+            Matchers.closeTo(0.75, 0.001)
+        );
+    }
+
+    @Test
+    void savesInPrometheusFormat(@TempDir final Path dir) throws Exception {
+        final Metrics metrics = new Metrics();
+        metrics.record("render", System.nanoTime());
+        metrics.cache("results", () -> 0L, () -> 2L);
+        final Path file = dir.resolve("polystat.prom");
+        metrics.save(file);
+        MatcherAssert.assertThat(
+            new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+            Matchers.allOf(
+                Matchers.containsString("# TYPE polystat_stage_seconds summary"),
+                Matchers.containsString(
+                    "polystat_stage_seconds{stage=\"render\",quantile=\"0.95\"}"
+                ),
+                Matchers.containsString("polystat_stage_seconds_count{stage=\"render\"} 1"),
+                Matchers.containsString("polystat_cache_misses_total{cache=\"results\"} 2")
+            )
+        );
+    }
+
+    @Test
+    void keepsExactCountAndMaxOfManyDurations() {
+        final Metrics metrics = new Metrics();
+        final int total = 100_000;
+        for (int idx = 0; idx < total; ++idx) {
+            metrics.record("locate", System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(1L));
+        }
+        metrics.record("locate", System.nanoTime() - TimeUnit.SECONDS.toNanos(5L));
+        final JsonObject locate = Json.createReader(
+            new StringReader(metrics.json())
+        ).readObject().getJsonObject("stages").getJsonObject("locate");
+        MatcherAssert.assertThat(locate.getInt("count"), Matchers.equalTo(total + 1));
+        MatcherAssert.assertThat(
+            locate.getJsonNumber("max_ms").doubleValue(),
+            Matchers.greaterThanOrEqualTo(5_000.0)
+        );
+        MatcherAssert.assertThat(
+            locate.getJsonNumber("p50_ms").doubleValue(),
+            Matchers.lessThan(5_000.0)
+        );
+    }
+
+    @Test
+    void recordsNothingWhenDisabled() {
+        final Metrics metrics = new Metrics(false);
+        metrics.record("parse", System.nanoTime());
+        metrics.cache("xmir", () -> 1L, () -> 1L);
+        MatcherAssert.assertThat(
+            metrics.json(),
+            Matchers.equalTo("{\"stages\":{},\"caches\":{}}")
+        );
+    }
+}
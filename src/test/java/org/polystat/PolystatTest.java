@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Test case for {@link Polystat}, running in this JVM.
+ *
+ * @since 1.0
+ */
+final class PolystatTest {
+
+    @Test
+    void skipsAnalyzersWithoutIncludedRules(@TempDir final Path dir) throws Exception {
+        final Path metrics = dir.resolve("metrics.json");
+        MatcherAssert.assertThat(
+            PolystatTest.run(
+                dir, "--include", "Mutual Recursion", "--metrics", metrics.toString()
+            ),
+            Matchers.containsString("was last redefined")
+        );
+        MatcherAssert.assertThat(
+            new String(Files.readAllBytes(metrics), StandardCharsets.UTF_8),
+            Matchers.allOf(
+                Matchers.containsString("analysis.AnOdin"),
+                Matchers.not(Matchers.containsString("analysis.AnFaR"))
+            )
+        );
+    }
+
+    @Test
+    void excludesAllExcludedRules(@TempDir final Path dir) throws Exception {
+        MatcherAssert.assertThat(
+            PolystatTest.run(
+                dir, "--exclude", "Mutual Recursion,Unjustified Assumption,DIV0"
+            ),
+            Matchers.not(Matchers.containsString("was last redefined"))
+        );
+    }
+
+    /**
+     * Analyze two programs with mutual recursion.
+     * @param dir Directory for sources and temp files
+     * @param args More arguments
+     * @return Console output
+     * @throws Exception If fails
+     */
+    private static String run(final Path dir, final String... args) throws Exception {
+        final Path src = dir.resolve("src/sandbox");
+        Files.createDirectories(src);
+        Files.write(
+            src.resolve("base.eo"),
+            String.join(
+                "\n",
+                "+package sandbox",
+                "",
+                "[] > base",
+                "  memory > x",
+                "  [self v] > f",
+                "    x.write > @",
+                "      v",
+                "  [self v] > g",
+                "    self.f > @",
+                "      self",
+                "      v",
+                ""
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        Files.write(
+            src.resolve("derived.eo"),
+            String.join(
+                "\n",
+                "+package sandbox",
+                "+alias base sandbox.base",
+                "",
+                "[] > derived",
+                "  base > @",
+                "  [self v] > f",
+                "    self.g > @",
+                "      self",
+                "      v",
+                ""
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final String[] all = new String[args.length + 4];
+        all[0] = "--files";
+        all[1] = dir.resolve("src").toString();
+        all[2] = "--tmp";
+        all[3] = dir.resolve("tmp").toString();
+        System.arraycopy(args, 0, all, 4, args.length);
+        try (Analyzers analyzers = new Analyzers()) {
+            new CommandLine(
+                new Polystat(
+                    XmirCache::new, analyzers, new ByteArrayInputStream(new byte[0]), stdout
+                )
+            ).execute(all);
+        }
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
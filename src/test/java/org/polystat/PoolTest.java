@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link Pool}.
+ *
+ * @since 1.0
+ */
+final class PoolTest {
+
+    @Test
+    void reusesIdleInstances() throws Exception {
+        final AtomicInteger made = new AtomicInteger();
+        final Pool<Integer> pool = new Pool<>(made::incrementAndGet);
+        for (int idx = 0; idx < 10; ++idx) {
+            MatcherAssert.assertThat(pool.apply(num -> num), Matchers.equalTo(1));
+        }
+        MatcherAssert.assertThat(pool.made(), Matchers.equalTo(1));
+    }
+
+    @Test
+    void givesEachThreadItsOwnInstance() throws Exception {
+        final int threads = 4;
+        final Pool<Object> pool = new Pool<>(Object::new);
+        final CountDownLatch all = new CountDownLatch(threads);
+        final Collection<Object> used = new ConcurrentLinkedQueue<>();
+        final ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            final Collection<Future<Object>> futures = new ConcurrentLinkedQueue<>();
+            for (int idx = 0; idx < threads; ++idx) {
+                futures.add(
+                    exec.submit(
+                        () -> pool.apply(
+                            item -> {
+                                used.add(item);
+                                all.countDown();
+                                all.await(1L, TimeUnit.MINUTES);
+                                return item;
+                            }
+                        )
+                    )
+                );
+            }
+            for (final Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+        MatcherAssert.assertThat(
+            used.stream().distinct().count(),
+            Matchers.equalTo((long) threads)
+        );
+        MatcherAssert.assertThat(pool.made(), Matchers.equalTo(threads));
+    }
+
+    @Test
+    void dropsInstanceOfFailedJob() throws Exception {
+        final Pool<Object> pool = new Pool<>(Object::new);
+        Assertions.assertThrows(
+            IllegalStateException.class,
+            () -> pool.apply(
+                item -> {
+                    throw new IllegalStateException("broken");
+                }
+            )
+        );
+        pool.apply(item -> item);
+        MatcherAssert.assertThat(pool.made(), Matchers.equalTo(2));
+    }
+
+    @Test
+    void closesInstanceOfFailedJob() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        final Pool<AutoCloseable> pool = new Pool<>(() -> closed::incrementAndGet);
+        Assertions.assertThrows(
+            IllegalStateException.class,
+            () -> pool.apply(
+                item -> {
+                    throw new IllegalStateException("broken");
+                }
+            )
+        );
+        MatcherAssert.assertThat(closed.get(), Matchers.equalTo(1));
+        pool.close();
+        MatcherAssert.assertThat(closed.get(), Matchers.equalTo(1));
+    }
+
+    @Test
+    void dropsInstanceOfInterruptedJob() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        final Pool<AutoCloseable> pool = new Pool<>(() -> closed::incrementAndGet);
+        final ExecutorService exec = Executors.newSingleThreadExecutor();
+        try {
+            exec.submit(
+                () -> pool.apply(
+                    item -> {
+                        Thread.currentThread().interrupt();
+                        return item;
+                    }
+                )
+            ).get();
+            exec.submit(() -> pool.apply(item -> item)).get();
+        } finally {
+            exec.shutdownNow();
+        }
+        MatcherAssert.assertThat(closed.get(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(pool.made(), Matchers.equalTo(2));
+    }
+
+    @Test
+    void closesInstances() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final Pool<AutoCloseable> pool = new Pool<>(() -> () -> closed.set(true));
+        pool.apply(item -> item);
+        pool.close();
+        MatcherAssert.assertThat(closed.get(), Matchers.is(true));
+    }
+}
@@ -24,8 +24,16 @@
 package org.polystat;
 
 import com.jcabi.xml.XML;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.cactoos.Text;
 import org.cactoos.io.ResourceOf;
 import org.cactoos.io.TeeInput;
@@ -62,6 +70,113 @@ final class ProgramTest {
         this.assertOutput(temp, temp);
     }
 
+    @Test
+    void reusesXmirWhenOnlyTimestampChanges(@TempDir final Path temp) throws Exception {
+        this.writeSources(temp);
+        this.assertOutput(temp, temp);
+        final Path xml = temp.resolve("test.xml");
+        final FileTime compiled = FileTime.fromMillis(1000L);
+        Files.setLastModifiedTime(xml, compiled);
+        Files.setLastModifiedTime(
+            temp.resolve("test.eo"),
+            FileTime.fromMillis(System.currentTimeMillis() + 60_000L)
+        );
+        this.assertOutput(temp, temp);
+        MatcherAssert.assertThat(
+            Files.getLastModifiedTime(xml),
+            Matchers.equalTo(compiled)
+        );
+    }
+
+    @Test
+    void recompilesChangedSourceWithOldTimestamp(@TempDir final Path temp)
+        throws Exception {
+        this.writeSources(temp);
+        this.assertOutput(temp, temp);
+        final Path src = temp.resolve("test.eo");
+        this.writeFile(
+            new TextOf(
+                new String(Files.readAllBytes(src), StandardCharsets.UTF_8)
+                    .replace("fv", "fx")
+            ),
+            src
+        );
+        Files.setLastModifiedTime(src, FileTime.fromMillis(0L));
+        MatcherAssert.assertThat(
+            new Program(temp, temp).apply("\\Phi.test.fx").xpath("@name").get(0),
+            Matchers.equalTo("fx")
+        );
+    }
+
+    @Test
+    void compilesSafelyForConcurrentCallers(@TempDir final Path temp) throws Exception {
+        this.writeSources(temp);
+        final Program program = new Program(temp, temp);
+        final int total = 6;
+        final ExecutorService pool = Executors.newFixedThreadPool(total);
+        try {
+            final Collection<Future<XML>> futures = new ArrayList<>(total);
+            for (int idx = 0; idx < total; ++idx) {
+                futures.add(pool.submit(() -> program.apply("\\Phi.test.fv")));
+            }
+            for (final Future<XML> future : futures) {
+                MatcherAssert.assertThat(
+                    future.get().xpath("@name").get(0),
+                    Matchers.equalTo("fv")
+                );
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        MatcherAssert.assertThat(
+            temp.toFile().list((dir, name) -> name.endsWith(".tmp")),
+            Matchers.emptyArray()
+        );
+    }
+
+    @Test
+    void findsObjectsInNestedPackages(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("src");
+        this.writeFile(
+            new TextOf(new ResourceOf("org/polystat/test.eo")),
+            src.resolve("org/polystat/test.eo")
+        );
+        final Path tmp = temp.resolve("tmp");
+        MatcherAssert.assertThat(
+            new Program(src, tmp).apply("\\Phi.org.polystat.test.fv")
+                .xpath("@name").get(0),
+            Matchers.equalTo("fv")
+        );
+        MatcherAssert.assertThat(
+            Files.exists(tmp.resolve("org/polystat/test.xml")),
+            Matchers.is(true)
+        );
+    }
+
+    @Test
+    void compilesInMemoryOnly(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("src");
+        this.writeSources(src);
+        final Path tmp = temp.resolve("tmp");
+        final XmirCache cache = new XmirCache(1L);
+        final Program program = new Program(
+            src, tmp, cache,
+            () -> new Sources(src).programs(), new Metrics(),
+            Program.Persist.NONE, Program.Format.XML
+        );
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                program.apply("\\Phi.test.fv").xpath("@name").get(0),
+                Matchers.equalTo("fv")
+            );
+        }
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(
+            Files.exists(tmp.resolve("test.xml")),
+            Matchers.is(false)
+        );
+    }
+
     /**
      * Write to file.
      * @param data Data.
@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link ResultCache}.
+ *
+ * @since 1.0
+ */
+final class ResultCacheTest {
+
+    @Test
+    void findsStoredResultsAfterRestart(@TempDir final Path temp) throws Exception {
+        final byte[] key = ResultCacheTest.key(1);
+        new ResultCache(temp).put(
+            "\\Phi.a", key,
+            new ListOf<Result>(
+                new Result.Completed(AnOdin.class, new ListOf<>("a: a.f", "b: b.g"), "Mutual"),
+                new Result.Completed(AnOdin.class, new ListOf<>(), "Liskov")
+            )
+        );
+        final List<Result> found = new ResultCache(temp).get(key, AnOdin.class).get();
+        MatcherAssert.assertThat(found, Matchers.hasSize(2));
+        MatcherAssert.assertThat(found.get(0).ruleId(), Matchers.equalTo("Mutual"));
+        MatcherAssert.assertThat(found.get(0), Matchers.contains("a: a.f", "b: b.g"));
+        MatcherAssert.assertThat(found.get(1), Matchers.emptyIterable());
+    }
+
+    @Test
+    void missesUnknownKey(@TempDir final Path temp) throws Exception {
+        final ResultCache cache = new ResultCache(temp);
+        cache.put("\\Phi.a", ResultCacheTest.key(1), new ListOf<Result>());
+        MatcherAssert.assertThat(
+            cache.get(ResultCacheTest.key(2), AnFaR.class),
+            Matchers.equalTo(Optional.empty())
+        );
+    }
+
+    @Test
+    void cutsTornRecordOff(@TempDir final Path temp) throws Exception {
+        new ResultCache(temp).put(
+            "\\Phi.a", ResultCacheTest.key(1),
+            new ListOf<Result>(new Result.Completed(AnFaR.class, new ListOf<>("x"), "DIV0"))
+        );
+        final Path file = temp.resolve(ResultCache.FILE);
+        final long size = Files.size(file);
+        Files.write(file, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+        final ResultCache cache = new ResultCache(temp);
+        cache.put("\\Phi.b", ResultCacheTest.key(2), new ListOf<Result>());
+        MatcherAssert.assertThat(
+            cache.get(ResultCacheTest.key(1), AnFaR.class).get().get(0),
+            Matchers.contains("x")
+        );
+        MatcherAssert.assertThat(
+            new ResultCache(temp).get(ResultCacheTest.key(2), AnFaR.class).isPresent(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            Files.size(file),
+            Matchers.equalTo(size + 2L * ResultCache.KEY + Integer.BYTES + Integer.BYTES)
+        );
+    }
+
+    @Test
+    void movesFileOfAnotherFormatAside(@TempDir final Path temp) throws Exception {
+        final byte[] newer = {0x50, 0x53, 0x52, 0x03, 1, 2, 3};
+        Files.write(temp.resolve(ResultCache.FILE), newer);
+        new ResultCache(temp).put("\\Phi.a", ResultCacheTest.key(1), new ListOf<Result>());
+        MatcherAssert.assertThat(
+            Files.readAllBytes(temp.resolve(String.format("%s.50535203", ResultCache.FILE))),
+            Matchers.equalTo(newer)
+        );
+        MatcherAssert.assertThat(
+            new ResultCache(temp).get(ResultCacheTest.key(1), AnFaR.class).isPresent(),
+            Matchers.is(true)
+        );
+    }
+
+    @Test
+    void findsResultsFromManyThreadsAtOnce(@TempDir final Path temp) throws Exception {
+        new ResultCache(temp).put(
+            "\\Phi.a", ResultCacheTest.key(1),
+            new ListOf<Result>(new Result.Completed(AnFaR.class, new ListOf<>("x"), "DIV0"))
+        );
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try (ResultCache cache = new ResultCache(temp)) {
+            final List<Future<Integer>> futures = new ArrayList<>(0);
+            for (int idx = 0; idx < 8; ++idx) {
+                final boolean writer = idx % 2 == 1;
+                futures.add(
+                    threads.submit(
+                        () -> {
+                            int found = 0;
+                            for (int run = 0; run < 100; ++run) {
+                                if (writer) {
+                                    cache.put(
+                                        String.format("\\Phi.r%d", run),
+                                        ResultCacheTest.key(run + 2), new ListOf<Result>()
+                                    );
+                                } else if (cache.get(ResultCacheTest.key(1), AnFaR.class)
+                                    .get().get(0).iterator().next().equals("x")) {
+                                    ++found;
+                                }
+                            }
+                            return found;
+                        }
+                    )
+                );
+            }
+            int total = 0;
+            for (final Future<Integer> future : futures) {
+                total += future.get();
+            }
+            MatcherAssert.assertThat(total, Matchers.equalTo(400));
+            MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(400L));
+        } finally {
+            threads.shutdownNow();
+        }
+        MatcherAssert.assertThat(
+            new ResultCache(temp).get(ResultCacheTest.key(101), AnFaR.class).isPresent(),
+            Matchers.is(true)
+        );
+    }
+
+    @Test
+    void compactsFileWithManyDeadRecords(@TempDir final Path temp) throws Exception {
+        final int total = 2000;
+        try (ResultCache cache = new ResultCache(temp)) {
+            for (int idx = 0; idx < total; ++idx) {
+                cache.put(
+                    String.format("\\Phi.o%d", idx % 2),
+                    ResultCacheTest.key(idx),
+                    new ListOf<Result>(
+                        new Result.Completed(AnFaR.class, new ListOf<>("x"), "DIV0")
+                    )
+                );
+            }
+        }
+        final long size = Files.size(temp.resolve(ResultCache.FILE));
+        MatcherAssert.assertThat(size, Matchers.lessThan(1024L));
+        try (ResultCache cache = new ResultCache(temp)) {
+            MatcherAssert.assertThat(
+                cache.get(ResultCacheTest.key(total - 1), AnFaR.class).get().get(0),
+                Matchers.contains("x")
+            );
+            MatcherAssert.assertThat(
+                cache.get(ResultCacheTest.key(0), AnFaR.class).isPresent(),
+                Matchers.is(false)
+            );
+            cache.put("\\Phi.o2", ResultCacheTest.key(total), new ListOf<Result>());
+        }
+        MatcherAssert.assertThat(
+            Files.size(temp.resolve(ResultCache.FILE)), Matchers.greaterThan(size)
+        );
+    }
+
+    @Test
+    void readsFileCompactedByAnother(@TempDir final Path temp) throws Exception {
+        try (ResultCache mine = new ResultCache(temp)) {
+            mine.put("\\Phi.a", ResultCacheTest.key(1), new ListOf<Result>());
+            try (ResultCache other = new ResultCache(temp)) {
+                for (int idx = 0; idx < 2000; ++idx) {
+                    other.put("\\Phi.b", ResultCacheTest.key(idx + 2), new ListOf<Result>());
+                }
+            }
+            mine.put(
+                "\\Phi.c", ResultCacheTest.key(0),
+                new ListOf<Result>(new Result.Completed(AnFaR.class, new ListOf<>("y"), "DIV0"))
+            );
+            MatcherAssert.assertThat(
+                mine.get(ResultCacheTest.key(0), AnFaR.class).get().get(0),
+                Matchers.contains("y")
+            );
+            MatcherAssert.assertThat(
+                mine.get(ResultCacheTest.key(2001), AnFaR.class).isPresent(),
+                Matchers.is(true)
+            );
+        }
+    }
+
+    /**
+     * Make a key.
+     * @param seed First bytes of the key
+     * @return The key
+     */
+    private static byte[] key(final int seed) {
+        final byte[] key = new byte[ResultCache.KEY];
+        ByteBuffer.wrap(key).putInt(seed);
+        return key;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.manifests.Manifests;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import javax.json.JsonException;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test for {@link SarifSink}.
+ *
+ * @since 1.0
+ */
+final class SarifSinkTest {
+
+    @BeforeAll
+    static void addPolystatVersion() {
+        Manifests.DEFAULT.put("Polystat-Version", "1.0-SNAPSHOT");
+    }
+
+    @Test
+    void deletesSpillFileWhenOutputFails(@TempDir final Path temp) throws Exception {
+        final Writer broken = new Writer() {
+            @Override
+            public void write(final char[] buf, final int off, final int len)
+                throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void close() {
+                // Nothing to close
+            }
+        };
+        Assertions.assertThrows(
+            JsonException.class,
+            () -> {
+                try (SarifSink sink = new SarifSink(broken, temp)) {
+                    for (int idx = 0; idx < 1000; ++idx) {
+                        sink.accept(
+                            new Result.Completed(Analysis.class, new ListOf<>("e"), "RULE")
+                        );
+                    }
+                }
+            }
+        );
+        try (Stream<Path> files = Files.list(temp)) {
+            MatcherAssert.assertThat(files.count(), Matchers.equalTo(0L));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.cactoos.io.ResourceOf;
+import org.cactoos.io.TeeInput;
+import org.cactoos.list.ListOf;
+import org.cactoos.scalar.LengthOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Scheduler}.
+ *
+ * @since 1.0
+ */
+final class SchedulerTest {
+
+    @Test
+    void keepsOrderOfTasks() throws Exception {
+        final int total = 16;
+        final List<Callable<Iterable<Result>>> tasks = new ArrayList<>(total);
+        final List<String> rules = new ArrayList<>(total);
+        for (int idx = 0; idx < total; ++idx) {
+            final String rule = String.valueOf(idx);
+            rules.add(rule);
+            final long delay = total - idx;
+            tasks.add(
+                () -> {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                    return new ListOf<Result>(
+                        new Result.Completed(Analysis.class, new ListOf<>(), rule)
+                    );
+                }
+            );
+        }
+        for (final Scheduler.Kind kind : Scheduler.Kind.values()) {
+            final Collection<Result> results = new ArrayList<>(rules.size());
+            new Scheduler(4, kind).run(tasks, results::add);
+            MatcherAssert.assertThat(
+                results.stream().map(Result::ruleId).collect(Collectors.toList()),
+                Matchers.equalTo(rules)
+            );
+        }
+    }
+
+    @Test
+    void isolatesBrokenObjects() throws Exception {
+        final Analysis broken = (xmir, locator) -> {
+            if (locator.endsWith("bad")) {
+                throw new IllegalStateException(locator);
+            }
+            return new ListOf<Result>(
+                new Result.Completed(Analysis.class, new ListOf<>(), locator)
+            );
+        };
+        final Collection<Result> results = new ArrayList<>(3);
+        new Scheduler(2, Scheduler.Kind.FIXED).run(
+            new ListOf<>(
+                new Task(broken, locator -> null, "\\Phi.good"),
+                new Task(broken, locator -> null, "\\Phi.bad"),
+                new Task(broken, locator -> null, "\\Phi.other")
+            ),
+            results::add
+        );
+        MatcherAssert.assertThat(
+            results.stream()
+                .map(res -> res.failure().isPresent())
+                .collect(Collectors.toList()),
+            Matchers.contains(false, true, false)
+        );
+    }
+
+    @Test
+    void isolatesBrokenObjectsOfBatch() throws Exception {
+        final Analysis broken = (xmir, locator) -> {
+            if (locator.endsWith("bad")) {
+                throw new IllegalStateException(locator);
+            }
+            return new ListOf<Result>(
+                new Result.Completed(Analysis.class, new ListOf<>(), locator)
+            );
+        };
+        final Collection<Result> results = new ArrayList<>(3);
+        new Scheduler(1, Scheduler.Kind.FIXED).run(
+            new ListOf<>(
+                new Task(
+                    AnOdin.class, broken, locator -> null,
+                    new ListOf<>("\\Phi.good", "\\Phi.bad", "\\Phi.other"),
+                    0L, new Metrics()
+                )
+            ),
+            results::add
+        );
+        MatcherAssert.assertThat(
+            results.stream()
+                .map(res -> res.failure().isPresent())
+                .collect(Collectors.toList()),
+            Matchers.contains(false, true, false)
+        );
+    }
+
+    @Test
+    void timesOutSlowObjects() throws Exception {
+        final Analysis slow = (xmir, locator) -> {
+            if (locator.endsWith("slow")) {
+                TimeUnit.MINUTES.sleep(1L);
+            }
+            return new ListOf<Result>(
+                new Result.Completed(Analysis.class, new ListOf<>(), locator)
+            );
+        };
+        final Collection<Result> results = new ArrayList<>(3);
+        new Scheduler(1, Scheduler.Kind.FIXED).run(
+            new ListOf<>(
+                new Task(
+                    AnOdin.class, slow, locator -> null, "\\Phi.slow", 100L, new Metrics()
+                ),
+                new Task(
+                    AnOdin.class, slow, locator -> null, "\\Phi.fast", 100L, new Metrics()
+                )
+            ),
+            results::add
+        );
+        MatcherAssert.assertThat(
+            results.stream()
+                .map(res -> res.getClass().getSimpleName())
+                .collect(Collectors.toList()),
+            Matchers.contains("TimedOut", "Completed")
+        );
+    }
+
+    @Test
+    void timesOutSlowObjectsOfBatch() throws Exception {
+        final Analysis slow = (xmir, locator) -> {
+            if (locator.endsWith("slow")) {
+                TimeUnit.MINUTES.sleep(1L);
+            }
+            return new ListOf<Result>(
+                new Result.Completed(Analysis.class, new ListOf<>(), locator)
+            );
+        };
+        final Collection<Result> results = new ArrayList<>(3);
+        new Scheduler(1, Scheduler.Kind.FIXED).run(
+            new ListOf<>(
+                new Task(
+                    AnOdin.class, slow, locator -> null,
+                    new ListOf<>("\\Phi.fast", "\\Phi.slow", "\\Phi.other"),
+                    100L, new Metrics()
+                )
+            ),
+            results::add
+        );
+        MatcherAssert.assertThat(
+            results.stream()
+                .map(res -> res.getClass().getSimpleName())
+                .collect(Collectors.toList()),
+            Matchers.contains("Completed", "TimedOut", "Completed")
+        );
+    }
+
+    @Test
+    void compilesColdProgramOutsideOfDeadline(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("src");
+        Files.createDirectories(src);
+        new LengthOf(
+            new TeeInput(new ResourceOf("org/polystat/test.eo"), src.resolve("test.eo"))
+        ).value();
+        final Analysis reading = (xmir, locator) -> new ListOf<Result>(
+            new Result.Completed(Analysis.class, xmir.apply(locator).xpath("@name"), locator)
+        );
+        final Program program = new Program(src, temp.resolve("tmp"));
+        final List<Result> results = new ArrayList<>(2);
+        new Scheduler(2, Scheduler.Kind.FIXED).run(
+            new ListOf<>(
+                new Task(AnFaR.class, reading, program, "\\Phi.test.fv", 500L, new Metrics()),
+                new Task(AnOdin.class, reading, program, "\\Phi.test.fv", 0L, new Metrics())
+            ),
+            results::add
+        );
+        MatcherAssert.assertThat(results.get(0), Matchers.contains("fv"));
+        MatcherAssert.assertThat(results.get(1), Matchers.contains("fv"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.cactoos.list.ListOf;
+import org.cactoos.map.MapEntry;
+import org.cactoos.map.MapOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link Shard}.
+ *
+ * @since 1.0
+ */
+final class ShardTest {
+
+    @Test
+    void balancesProgramsByCost() {
+        final Map<String, Long> costs = new MapOf<String, Long>(
+            new MapEntry<>("a", 10L),
+            new MapEntry<>("b", 7L),
+            new MapEntry<>("c", 6L),
+            new MapEntry<>("d", 4L),
+            new MapEntry<>("e", 3L)
+        );
+        MatcherAssert.assertThat(
+            new Shard("1/2").programs(costs),
+            Matchers.contains("a", "d")
+        );
+        MatcherAssert.assertThat(
+            new Shard("2/2").programs(costs),
+            Matchers.contains("b", "c", "e")
+        );
+    }
+
+    @Test
+    void coversAllProgramsOnce() {
+        final Map<String, Long> costs = new MapOf<>(
+            name -> name,
+            name -> (long) name.length(),
+            new ListOf<>("x", "yy", "zzz", "w", "vv", "uuu", "t")
+        );
+        final Collection<String> all = new ArrayList<>(costs.size());
+        for (int idx = 1; idx <= 3; ++idx) {
+            final List<String> shard = new Shard(idx, 3).programs(costs);
+            MatcherAssert.assertThat(shard, Matchers.not(Matchers.empty()));
+            all.addAll(shard);
+        }
+        MatcherAssert.assertThat(
+            all,
+            Matchers.containsInAnyOrder(costs.keySet().toArray())
+        );
+    }
+
+    @Test
+    void rejectsWrongShard() {
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> new Shard("3/2")
+        );
+    }
+}
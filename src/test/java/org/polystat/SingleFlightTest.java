@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link SingleFlight}.
+ *
+ * @since 1.0
+ */
+final class SingleFlightTest {
+
+    @Test
+    void runsJobOnceForConcurrentCallers() throws Exception {
+        final SingleFlight flight = new SingleFlight(4);
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int total = 8;
+        final ExecutorService pool = Executors.newFixedThreadPool(total);
+        try {
+            final Collection<Future<?>> futures = new ArrayList<>(total);
+            futures.add(
+                pool.submit(
+                    () -> {
+                        flight.run(
+                            "key",
+                            () -> {
+                                started.countDown();
+                                release.await();
+                                return runs.incrementAndGet();
+                            }
+                        );
+                        return null;
+                    }
+                )
+            );
+            started.await();
+            for (int idx = 1; idx < total; ++idx) {
+                futures.add(
+                    pool.submit(
+                        () -> {
+                            flight.run("key", runs::incrementAndGet);
+                            return null;
+                        }
+                    )
+                );
+            }
+            TimeUnit.MILLISECONDS.sleep(200L);
+            release.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        MatcherAssert.assertThat(runs.get(), Matchers.equalTo(1));
+    }
+
+    @Test
+    void rethrowsFailureOfJob() {
+        Assertions.assertThrows(
+            IllegalStateException.class,
+            () -> new SingleFlight(1).run(
+                "broken",
+                () -> {
+                    throw new IllegalStateException("failed");
+                }
+            )
+        );
+    }
+
+    @Test
+    void passesErrorOfJobToWaiters() throws Exception {
+        final SingleFlight flight = new SingleFlight(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = pool.submit(
+                () -> flight.run(
+                    "deep",
+                    () -> {
+                        started.countDown();
+                        release.await();
+                        throw new StackOverflowError("too deep");
+                    }
+                )
+            );
+            started.await();
+            final Future<?> waiter = pool.submit(() -> flight.run("deep", () -> 1));
+            TimeUnit.MILLISECONDS.sleep(200L);
+            release.countDown();
+            for (final Future<?> future : new Future<?>[] {first, waiter}) {
+                MatcherAssert.assertThat(
+                    Assertions.assertThrows(
+                        ExecutionException.class,
+                        () -> future.get(5L, TimeUnit.SECONDS)
+                    ).getCause(),
+                    Matchers.instanceOf(StackOverflowError.class)
+                );
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void runsJobAgainForWaitersOfInterruptedCaller() throws Exception {
+        final SingleFlight flight = new SingleFlight(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = pool.submit(
+                () -> flight.run(
+                    "cut",
+                    () -> {
+                        started.countDown();
+                        new CountDownLatch(1).await();
+                        return 1;
+                    }
+                )
+            );
+            started.await();
+            final Future<Integer> waiter = pool.submit(() -> flight.run("cut", () -> 2));
+            TimeUnit.MILLISECONDS.sleep(200L);
+            first.cancel(true);
+            MatcherAssert.assertThat(waiter.get(5L, TimeUnit.SECONDS), Matchers.equalTo(2));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
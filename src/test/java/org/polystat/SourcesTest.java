@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.SortedMap;
+import org.cactoos.list.ListOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link Sources}.
+ *
+ * @since 1.0
+ */
+final class SourcesTest {
+
+    @Test
+    void namesProgramsByPackages(@TempDir final Path temp) throws Exception {
+        SourcesTest.write(temp.resolve("a/b/c.eo"), "# comment\n+package org.foo\n\n[] > c\n");
+        SourcesTest.write(temp.resolve("a/b/d.eo"), "[] > d\n");
+        SourcesTest.write(temp.resolve("e.eo"), "[] > e\n");
+        SourcesTest.write(temp.resolve("a/f.txt"), "+package no\n");
+        final SortedMap<String, Path> programs = new Sources(temp).programs();
+        MatcherAssert.assertThat(
+            programs.keySet(),
+            Matchers.contains("a.b.d", "e", "org.foo.c")
+        );
+        MatcherAssert.assertThat(
+            programs.get("org.foo.c"),
+            Matchers.equalTo(Paths.get("a", "b", "c.eo"))
+        );
+        MatcherAssert.assertThat(
+            Sources.key(programs.get("a.b.d")),
+            Matchers.equalTo("a/b/d")
+        );
+    }
+
+    @Test
+    void selectsSourcesByGlobs(@TempDir final Path temp) throws Exception {
+        SourcesTest.write(temp.resolve("x/one.eo"), "[] > one\n");
+        SourcesTest.write(temp.resolve("x/y/two.eo"), "[] > two\n");
+        SourcesTest.write(temp.resolve("three.eo"), "[] > three\n");
+        final Sources.Globs globs = new Sources.Globs(
+            new ListOf<>("x/**"), new ListOf<>("**/two.eo")
+        );
+        MatcherAssert.assertThat(
+            new Sources(temp).programs().entrySet().stream()
+                .filter(ent -> globs.test(ent.getValue()))
+                .map(Map.Entry::getKey)
+                .toArray(),
+            Matchers.arrayContaining("x.one")
+        );
+    }
+
+    /**
+     * Write the file and its directories.
+     * @param file The file
+     * @param content Its content
+     * @throws Exception If fails
+     */
+    private static void write(final Path file, final String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
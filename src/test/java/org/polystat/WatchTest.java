@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.cactoos.io.ResourceOf;
+import org.cactoos.io.TeeInput;
+import org.cactoos.scalar.LengthOf;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Test case for {@link Watch} and for --watch of {@link Polystat}.
+ *
+ * @since 1.0
+ */
+final class WatchTest {
+
+    @Test
+    void coalescesBurstOfChanges(@TempDir final Path temp) throws Exception {
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (Watch watch = new Watch(temp, 500L)) {
+            thread.submit(
+                () -> {
+                    for (final String name : new String[] {"a.eo", "b.txt", "c.eo"}) {
+                        Files.write(temp.resolve(name), name.getBytes(StandardCharsets.UTF_8));
+                        TimeUnit.MILLISECONDS.sleep(50L);
+                    }
+                    return null;
+                }
+            );
+            MatcherAssert.assertThat(
+                watch.changes(),
+                Matchers.contains("a", "c")
+            );
+        } finally {
+            thread.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsFindingsOfUntouchedPrograms(@TempDir final Path temp) throws Exception {
+        final Path src = temp.resolve("src");
+        Files.createDirectories(src.resolve("sandbox"));
+        Files.write(
+            src.resolve("sandbox/base.eo"),
+            String.join(
+                "\n",
+                "+package sandbox",
+                "",
+                "[] > base",
+                "  memory > x",
+                "  [self v] > f",
+                "    x.write > @",
+                "      v",
+                "  [self v] > g",
+                "    self.f > @",
+                "      self",
+                "      v",
+                ""
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        Files.write(
+            src.resolve("sandbox/derived.eo"),
+            String.join(
+                "\n",
+                "+package sandbox",
+                "+alias base sandbox.base",
+                "",
+                "[] > derived",
+                "  base > @",
+                "  [self v] > f",
+                "    self.g > @",
+                "      self",
+                "      v",
+                ""
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        Files.write(
+            src.resolve("test.eo"),
+            String.join("\n", "+package org.polystat", "", "[a b] > test", "  a > @", "")
+                .getBytes(StandardCharsets.UTF_8)
+        );
+        final Path out = temp.resolve("out.txt");
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try (Analyzers analyzers = new Analyzers()) {
+            thread.submit(
+                () -> new CommandLine(
+                    new Polystat(
+                        XmirCache::new, analyzers,
+                        new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream()
+                    )
+                ).execute(
+                    "--files", src.toString(), "--tmp", temp.resolve("tmp").toString(),
+                    "--output", out.toString(), "--watch"
+                )
+            );
+            WatchTest.await(out, "was last redefined");
+            new LengthOf(
+                new TeeInput(new ResourceOf("org/polystat/test.eo"), src.resolve("test.eo"))
+            ).value();
+            MatcherAssert.assertThat(
+                WatchTest.await(out, "\\perp"),
+                Matchers.containsString("was last redefined")
+            );
+        } finally {
+            thread.shutdownNow();
+            thread.awaitTermination(1L, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Wait until the report has the text.
+     * @param report The file with the report
+     * @param text The text
+     * @return The report
+     * @throws Exception If fails or doesn't wait long enough
+     */
+    private static String await(final Path report, final String text) throws Exception {
+        final long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2L);
+        String found = "";
+        while (!found.contains(text)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(
+                    String.format("No '%s' in the report: %s", text, found)
+                );
+            }
+            TimeUnit.MILLISECONDS.sleep(100L);
+            if (Files.exists(report)) {
+                found = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020-2022 Polystat.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.polystat;
+
+import com.jcabi.xml.XML;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link XmirCache}.
+ *
+ * @since 1.0
+ */
+final class XmirCacheTest {
+
+    @Test
+    void parsesFileOnlyOnce(@TempDir final Path temp) throws Exception {
+        final Path file = XmirCacheTest.write(temp.resolve("a.xml"), "a");
+        final XmirCache cache = new XmirCache(1024L);
+        final XML first = cache.xml(file);
+        MatcherAssert.assertThat(cache.xml(file), Matchers.sameInstance(first));
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void parsesFileOnceForManyThreads(@TempDir final Path temp) throws Exception {
+        final Path file = XmirCacheTest.write(temp.resolve("g.xml"), "g");
+        final XmirCache cache = new XmirCache(1024L);
+        final int total = 8;
+        final CyclicBarrier start = new CyclicBarrier(total);
+        final ExecutorService threads = Executors.newFixedThreadPool(total);
+        try {
+            final List<Future<XML>> found = new ArrayList<>(total);
+            for (int idx = 0; idx < total; ++idx) {
+                found.add(
+                    threads.submit(
+                        () -> {
+                            start.await();
+                            return cache.xml(file);
+                        }
+                    )
+                );
+            }
+            for (final Future<XML> xml : found) {
+                MatcherAssert.assertThat(xml.get(), Matchers.sameInstance(found.get(0).get()));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo((long) total - 1L));
+    }
+
+    @Test
+    void reparsesChangedFile(@TempDir final Path temp) throws Exception {
+        final Path file = XmirCacheTest.write(temp.resolve("b.xml"), "b");
+        final XmirCache cache = new XmirCache(1024L);
+        cache.xml(file);
+        XmirCacheTest.write(file, "changed");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0L));
+        MatcherAssert.assertThat(
+            cache.xml(file).xpath("/program/@name").get(0),
+            Matchers.equalTo("changed")
+        );
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(2L));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed(@TempDir final Path temp) throws Exception {
+        final Path first = XmirCacheTest.write(temp.resolve("c.xml"), "c");
+        final Path second = XmirCacheTest.write(temp.resolve("d.xml"), "d");
+        final XmirCache cache = new XmirCache(Files.size(first) + 1L);
+        cache.xml(first);
+        cache.xml(second);
+        cache.xml(second);
+        cache.xml(first);
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(3L));
+    }
+
+    @Test
+    void keepsPinnedUntilUnpinned(@TempDir final Path temp) throws Exception {
+        final Path file = temp.resolve("e.xml");
+        final XmirCache cache = new XmirCache(1L);
+        cache.put(
+            file, "print",
+            "<program name='e'><objects/></program>".getBytes(StandardCharsets.UTF_8),
+            true
+        );
+        cache.xml(XmirCacheTest.write(temp.resolve("f.xml"), "f"));
+        MatcherAssert.assertThat(cache.compiled(file, "print").isPresent(), Matchers.is(true));
+        cache.unpin(file, "print");
+        MatcherAssert.assertThat(cache.compiled(file, "print").isPresent(), Matchers.is(false));
+    }
+
+    /**
+     * Write a tiny XMIR document to the file.
+     * @param file The file
+     * @param name Name of the program
+     * @return The file
+     * @throws Exception If fails
+     */
+    private static Path write(final Path file, final String name) throws Exception {
+        Files.write(
+            file,
+            String.format("<program name='%s'><objects/></program>", name)
+                .getBytes(StandardCharsets.UTF_8)
+        );
+        return file;
+    }
+}